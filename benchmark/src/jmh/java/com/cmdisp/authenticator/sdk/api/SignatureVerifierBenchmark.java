@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2017 CM Telecom B.V.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.cmdisp.authenticator.sdk.api;
+
+import android.util.Base64;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.Charset;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Verifying the signatures of a certificate refresh with the {@link SignatureVerifier}, compared to decoding the
+ * public key and creating a {@link Signature} for every refresh as {@code CertClient} used to
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SignatureVerifierBenchmark {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final String ALGORITHM = "SHA256withRSA";
+    /** Number of certificates returned by a refresh */
+    private static final int CERTIFICATES = 3;
+
+    private final byte[][] data = new byte[CERTIFICATES][];
+    private final byte[][] signatures = new byte[CERTIFICATES][];
+    private String encodedKey;
+    private SignatureVerifier verifier;
+
+    @Setup
+    public void setUp() throws GeneralSecurityException {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        KeyPair keyPair = generator.generateKeyPair();
+        encodedKey = Base64.encodeToString(keyPair.getPublic().getEncoded(), Base64.DEFAULT);
+
+        Signature signer = Signature.getInstance(ALGORITHM);
+        signer.initSign(keyPair.getPrivate());
+        for (int i = 0; i < CERTIFICATES; i++) {
+            data[i] = ("{\"algorithm\":\"sha-256\",\"spki_hash\":\"certificate-" + i + "\"}").getBytes(UTF_8);
+            signer.update(data[i]);
+            signatures[i] = signer.sign();
+        }
+
+        verifier = new SignatureVerifier(encodedKey);
+    }
+
+    @Benchmark
+    public int decodeKeyPerRefresh() throws GeneralSecurityException {
+        byte[] keyBytes = Base64.decode(encodedKey, Base64.DEFAULT);
+        PublicKey publicKey = KeyFactory.getInstance("RSA").generatePublic(new X509EncodedKeySpec(keyBytes));
+        Signature signature = Signature.getInstance(ALGORITHM);
+        signature.initVerify(publicKey);
+
+        int verified = 0;
+        for (int i = 0; i < CERTIFICATES; i++) {
+            signature.update(data[i]);
+            if (signature.verify(signatures[i])) {
+                verified++;
+            }
+        }
+        return verified;
+    }
+
+    @Benchmark
+    public int signatureVerifier() throws GeneralSecurityException {
+        int verified = 0;
+        for (int i = 0; i < CERTIFICATES; i++) {
+            if (verifier.verify(data[i], signatures[i])) {
+                verified++;
+            }
+        }
+        return verified;
+    }
+}
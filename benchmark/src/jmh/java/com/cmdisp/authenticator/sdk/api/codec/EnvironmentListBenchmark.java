@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2017 CM Telecom B.V.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.cmdisp.authenticator.sdk.api.codec;
+
+import android.util.JsonReader;
+
+import com.cmdisp.authenticator.sdk.models.DefaultEnvironment;
+import com.cmdisp.authenticator.sdk.models.Environment;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+
+/**
+ * Decoding a list of environments while streaming the response body, compared to reading the body into a string
+ * and walking a {@link JSONArray} as {@code JsonArrayResponseCallback} used to
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EnvironmentListBenchmark {
+    private static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
+
+    @Param({"10", "1000"})
+    public int environments;
+
+    private byte[] json;
+
+    @Setup
+    public void setUp() {
+        StringBuilder builder = new StringBuilder("[");
+        for (int i = 0; i < environments; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append("{\"id\":\"3f2504e0-4f89-11d3-9a0c-").append(String.format("%012d", i))
+                    .append("\",\"name\":\"Environment ").append(i)
+                    .append("\",\"icon_url\":\"https://cdn.example.com/icons/").append(i).append(".png\"")
+                    .append(",\"created_at\":\"2017-06-01T12:30:00+02:00\"}");
+        }
+        json = builder.append(']').toString().getBytes(Charset.forName("UTF-8"));
+    }
+
+    @Benchmark
+    public List<Environment> jsonArray() throws IOException, JSONException {
+        JSONArray jsonArray = new JSONArray(ResponseBody.create(JSON, json).string());
+
+        int length = jsonArray.length();
+        List<Environment> environments = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) {
+            JSONObject jsonObject = jsonArray.optJSONObject(i);
+            if (jsonObject == null) {
+                continue;
+            }
+
+            environments.add(new DefaultEnvironment(
+                    jsonObject.optString("id"),
+                    jsonObject.optString("name"),
+                    null,
+                    jsonObject.optString("icon_url")
+            ));
+        }
+        return environments;
+    }
+
+    @Benchmark
+    public List<Environment> streaming() throws IOException {
+        List<Environment> environments = new ArrayList<>();
+        try (JsonReader reader = new JsonReader(ResponseBody.create(JSON, json).charStream())) {
+            DefaultEnvironmentCodec.readList(reader, environments);
+        }
+        return environments;
+    }
+}
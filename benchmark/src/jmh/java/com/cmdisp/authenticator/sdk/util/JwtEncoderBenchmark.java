@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2017 CM Telecom B.V.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.cmdisp.authenticator.sdk.util;
+
+import android.util.Base64;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.Charset;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Signing the JWT of an authentication request status update with the {@link JwtEncoder}, compared to building
+ * {@link JSONObject}s and concatenating the encoded strings as {@code SecurityUtil.createJWT} used to
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtEncoderBenchmark {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final String SECRET = "0123456789abcdef0123456789abcdef";
+    private static final String AUTH_ID = "3f2504e0-4f89-11d3-9a0c-0305e82c3301";
+    private static final long NOW = 1500000000;
+    private static final long EXPIRY_TIME = 60;
+    private static final char[] HEX_ARRAY = "0123456789abcdef".toCharArray();
+
+    /** HMAC of the request body */
+    private byte[] bodySig;
+
+    @Setup
+    public void setUp() throws GeneralSecurityException {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(SECRET.getBytes(UTF_8), "HmacSHA256"));
+        bodySig = mac.doFinal("{\"auth_status\":\"approved\"}".getBytes(UTF_8));
+    }
+
+    @Benchmark
+    public String jsonObject() throws JSONException, GeneralSecurityException {
+        JSONObject jsonHeader = new JSONObject()
+                .put("alg", "HS256");
+
+        JSONObject jsonPayload = new JSONObject()
+                .put("auth_id", AUTH_ID)
+                .put("iat", NOW)
+                .put("nbf", NOW)
+                .put("exp", NOW + EXPIRY_TIME)
+                .put("sig", bytesToHex(bodySig));
+
+        String encodedHeader = base64encode(jsonHeader.toString().getBytes(UTF_8));
+        String encodedPayload = base64encode(jsonPayload.toString().getBytes(UTF_8));
+
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(SECRET.getBytes(), "HmacSHA256"));
+        byte[] signature = mac.doFinal((encodedHeader + "." + encodedPayload).getBytes());
+
+        return encodedHeader + '.' + encodedPayload + '.' + base64encode(signature);
+    }
+
+    @Benchmark
+    public String jwtEncoder() throws GeneralSecurityException {
+        return JwtEncoder.begin()
+                .claim("auth_id", AUTH_ID)
+                .claim("iat", NOW)
+                .claim("nbf", NOW)
+                .claim("exp", NOW + EXPIRY_TIME)
+                .claimHex("sig", bodySig)
+                .sign(SECRET);
+    }
+
+    private static String base64encode(byte[] bytes) {
+        return Base64.encodeToString(bytes, Base64.URL_SAFE | Base64.NO_PADDING | Base64.NO_WRAP);
+    }
+
+    private static String bytesToHex(byte[] data) {
+        char[] hexChars = new char[data.length << 1];
+        for (int i = 0, j = 0; i < data.length; i++) {
+            hexChars[j++] = HEX_ARRAY[(0xF0 & data[i]) >>> 4];
+            hexChars[j++] = HEX_ARRAY[0x0F & data[i]];
+        }
+        return new String(hexChars);
+    }
+}
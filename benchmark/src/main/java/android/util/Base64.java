@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2017 CM Telecom B.V.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package android.util;
+
+import java.nio.charset.Charset;
+
+/**
+ * JVM implementation of the parts of the Android Base64 API used by the benchmarked code
+ * <p>
+ * The class in android-all calls {@code System.arraycopy} overloads which only exist on Android, so it can't run
+ * on the JVM. This one takes its place on the classpath, delegating to {@link java.util.Base64}.
+ */
+public class Base64 {
+    public static final int DEFAULT = 0;
+    public static final int NO_PADDING = 1;
+    public static final int NO_WRAP = 2;
+    public static final int CRLF = 4;
+    public static final int URL_SAFE = 8;
+
+    private static final Charset US_ASCII = Charset.forName("US-ASCII");
+    private static final int LINE_LENGTH = 76;
+
+    private Base64() {
+    }
+
+    public static byte[] decode(String str, int flags) {
+        return decode(str.getBytes(US_ASCII), flags);
+    }
+
+    public static byte[] decode(byte[] input, int flags) {
+        byte[] standard = input.clone();
+        for (int i = 0; i < standard.length; i++) {
+            if (standard[i] == '-') {
+                standard[i] = '+';
+            } else if (standard[i] == '_') {
+                standard[i] = '/';
+            }
+        }
+        // the MIME decoder skips line breaks like the Android decoder does
+        return java.util.Base64.getMimeDecoder().decode(standard);
+    }
+
+    public static String encodeToString(byte[] input, int flags) {
+        java.util.Base64.Encoder encoder = (flags & URL_SAFE) != 0
+                ? java.util.Base64.getUrlEncoder()
+                : java.util.Base64.getEncoder();
+        if ((flags & NO_PADDING) != 0) {
+            encoder = encoder.withoutPadding();
+        }
+
+        String encoded = encoder.encodeToString(input);
+        if ((flags & NO_WRAP) != 0) {
+            return encoded;
+        }
+
+        String lineBreak = (flags & CRLF) != 0 ? "\r\n" : "\n";
+        StringBuilder wrapped = new StringBuilder(encoded.length() + encoded.length() / LINE_LENGTH * 2 + 2);
+        for (int i = 0; i < encoded.length(); i += LINE_LENGTH) {
+            wrapped.append(encoded, i, Math.min(i + LINE_LENGTH, encoded.length())).append(lineBreak);
+        }
+        return wrapped.toString();
+    }
+}
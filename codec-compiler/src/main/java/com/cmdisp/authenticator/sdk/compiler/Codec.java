@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2017 CM Telecom B.V.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.cmdisp.authenticator.sdk.compiler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeMirror;
+
+/**
+ * Codec to generate for a value type, decoding and/or encoding it
+ */
+final class Codec {
+    /** Simple name of the generated class */
+    final String name;
+    final TypeElement valueType;
+    final List<Element> originatingElements = new ArrayList<>();
+    Decoder decoder;
+    Encoder encoder;
+
+    Codec(TypeElement valueType) {
+        this.name = valueType.getSimpleName() + "Codec";
+        this.valueType = valueType;
+    }
+
+    /**
+     * Decoder calling the setters of a builder or passing the values to a constructor
+     */
+    static final class Decoder {
+        /** The builder, {@code null} when decoding using a constructor */
+        final TypeElement builder;
+        /** The setters of the builder or the parameters of the constructor in order */
+        final List<Property> properties;
+
+        Decoder(TypeElement builder, List<Property> properties) {
+            this.builder = builder;
+            this.properties = properties;
+        }
+    }
+
+    /**
+     * Encoder writing the fields of the value
+     */
+    static final class Encoder {
+        final List<Property> fields;
+
+        Encoder(List<Property> fields) {
+            this.fields = fields;
+        }
+    }
+
+    /**
+     * Setter, constructor parameter or field mapped to a JSON field
+     */
+    static final class Property {
+        /** Name of the JSON field, {@code null} for constructor parameters which are not decoded */
+        final String jsonName;
+        /** Name of the setter, parameter or field */
+        final String name;
+        final TypeMirror type;
+        final Element element;
+
+        Property(String jsonName, String name, TypeMirror type, Element element) {
+            this.jsonName = jsonName;
+            this.name = name;
+            this.type = type;
+            this.element = element;
+        }
+    }
+}
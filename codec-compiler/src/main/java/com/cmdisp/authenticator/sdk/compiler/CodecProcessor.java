@@ -0,0 +1,270 @@
+/*
+ * Copyright (c) 2017 CM Telecom B.V.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.cmdisp.authenticator.sdk.compiler;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.util.Elements;
+import javax.tools.Diagnostic;
+
+/**
+ * Generates the streaming JSON codecs of the SDK models
+ * <p>
+ * Every type with a {@code @JsonDecoder} and/or {@code @JsonEncoder} gets a {@code <Type>Codec} class in the
+ * package of the annotations. The annotations are referred to by name, so this module doesn't depend on the
+ * Android library declaring them.
+ */
+public final class CodecProcessor extends AbstractProcessor {
+    private static final String JSON_DECODER = "com.cmdisp.authenticator.sdk.api.codec.JsonDecoder";
+    private static final String JSON_ENCODER = "com.cmdisp.authenticator.sdk.api.codec.JsonEncoder";
+    private static final String JSON_FIELD = "com.cmdisp.authenticator.sdk.api.codec.JsonField";
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return new HashSet<>(Arrays.asList(JSON_DECODER, JSON_ENCODER));
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (annotations.isEmpty()) {
+            return false;
+        }
+
+        Elements elements = processingEnv.getElementUtils();
+        TypeElement decoderAnnotation = elements.getTypeElement(JSON_DECODER);
+        TypeElement encoderAnnotation = elements.getTypeElement(JSON_ENCODER);
+        String codecPackage = elements.getPackageOf(decoderAnnotation).getQualifiedName().toString();
+
+        // keyed by the qualified name of the value type, so nested values can find their codec
+        Map<String, Codec> codecs = new LinkedHashMap<>();
+        try {
+            for (Element element : roundEnv.getElementsAnnotatedWith(decoderAnnotation)) {
+                Codec.Decoder decoder;
+                TypeElement valueType;
+                if (element.getKind() == ElementKind.CONSTRUCTOR) {
+                    decoder = constructorDecoder((ExecutableElement) element);
+                    valueType = (TypeElement) element.getEnclosingElement();
+                } else {
+                    decoder = builderDecoder((TypeElement) element);
+                    valueType = (TypeElement) processingEnv.getTypeUtils()
+                            .asElement(getBuildMethod(decoder.builder).getReturnType());
+                }
+
+                Codec codec = getCodec(codecs, valueType, element);
+                if (codec.decoder != null) {
+                    throw new ProcessingException(element, "Duplicate @JsonDecoder for " + valueType);
+                }
+                codec.decoder = decoder;
+            }
+
+            for (Element element : roundEnv.getElementsAnnotatedWith(encoderAnnotation)) {
+                TypeElement valueType = (TypeElement) element;
+                getCodec(codecs, valueType, element).encoder = encoder(valueType, codecPackage);
+            }
+
+            for (Codec codec : codecs.values()) {
+                new CodecWriter(processingEnv, codecPackage, codecs, codec).write();
+            }
+        } catch (ProcessingException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, e.getMessage(), e.element);
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Could not write codec: " + e);
+        }
+        return true;
+    }
+
+    private static Codec getCodec(Map<String, Codec> codecs, TypeElement valueType, Element element) {
+        String key = valueType.getQualifiedName().toString();
+        Codec codec = codecs.get(key);
+        if (codec == null) {
+            codec = new Codec(valueType);
+            codecs.put(key, codec);
+        }
+        codec.originatingElements.add(element);
+        return codec;
+    }
+
+    /**
+     * Decoder passing the values to the parameters of the constructor, parameters without
+     * {@code @JsonField} get the default value of their type
+     */
+    private Codec.Decoder constructorDecoder(ExecutableElement constructor) throws ProcessingException {
+        requireAccessible(constructor);
+        if (constructor.getEnclosingElement().getModifiers().contains(Modifier.ABSTRACT)) {
+            throw new ProcessingException(constructor, "@JsonDecoder constructor of an abstract class");
+        }
+
+        List<Codec.Property> properties = new ArrayList<>();
+        for (VariableElement parameter : constructor.getParameters()) {
+            String name = parameter.getSimpleName().toString();
+            if (name.equals("reader") || name.equals("value")) {
+                throw new ProcessingException(parameter, "Parameter name '" + name + "' is used by the codec");
+            }
+            properties.add(new Codec.Property(getJsonName(parameter), name, parameter.asType(), parameter));
+        }
+        return new Codec.Decoder(null, checkJsonNames(constructor, properties));
+    }
+
+    /**
+     * Decoder calling the setters with {@code @JsonField} of a builder with a no-arg constructor, the value is
+     * created by its {@code build()} method
+     */
+    private Codec.Decoder builderDecoder(TypeElement builder) throws ProcessingException {
+        requireAccessible(builder);
+        if (builder.getNestingKind().isNested() && !builder.getModifiers().contains(Modifier.STATIC)) {
+            throw new ProcessingException(builder, "@JsonDecoder builder must be a static class");
+        }
+
+        boolean noArgConstructor = false;
+        List<Codec.Property> properties = new ArrayList<>();
+        for (Element element : builder.getEnclosedElements()) {
+            if (element.getKind() == ElementKind.CONSTRUCTOR) {
+                ExecutableElement constructor = (ExecutableElement) element;
+                noArgConstructor |= constructor.getParameters().isEmpty()
+                        && !constructor.getModifiers().contains(Modifier.PRIVATE);
+                continue;
+            }
+
+            String jsonName = getJsonName(element);
+            if (jsonName == null) {
+                continue;
+            }
+
+            ExecutableElement setter = (ExecutableElement) element;
+            requireAccessible(setter);
+            if (setter.getModifiers().contains(Modifier.STATIC) || setter.getParameters().size() != 1) {
+                throw new ProcessingException(setter, "@JsonField setter must be an instance method with 1 parameter");
+            }
+            properties.add(new Codec.Property(jsonName, setter.getSimpleName().toString(),
+                    setter.getParameters().get(0).asType(), setter));
+        }
+
+        if (!noArgConstructor) {
+            throw new ProcessingException(builder, "@JsonDecoder builder needs a no-arg constructor");
+        }
+        getBuildMethod(builder);
+        return new Codec.Decoder(builder, checkJsonNames(builder, properties));
+    }
+
+    private static ExecutableElement getBuildMethod(TypeElement builder) throws ProcessingException {
+        for (Element element : builder.getEnclosedElements()) {
+            if (element.getKind() == ElementKind.METHOD && element.getSimpleName().contentEquals("build")) {
+                ExecutableElement method = (ExecutableElement) element;
+                if (method.getParameters().isEmpty() && method.getReturnType().getKind() == TypeKind.DECLARED
+                        && !method.getModifiers().contains(Modifier.PRIVATE)) {
+                    return method;
+                }
+            }
+        }
+        throw new ProcessingException(builder, "@JsonDecoder builder needs a build() method");
+    }
+
+    /**
+     * Encoder writing the fields with {@code @JsonField}, which must be accessible from the codec package
+     */
+    private Codec.Encoder encoder(TypeElement type, String codecPackage) throws ProcessingException {
+        requireAccessible(type);
+        String packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+
+        List<Codec.Property> fields = new ArrayList<>();
+        for (Element element : type.getEnclosedElements()) {
+            String jsonName = getJsonName(element);
+            if (jsonName == null || element.getKind() != ElementKind.FIELD) {
+                continue;
+            }
+
+            Set<Modifier> modifiers = element.getModifiers();
+            if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.PRIVATE)
+                    || (!modifiers.contains(Modifier.PUBLIC) && !packageName.equals(codecPackage))) {
+                throw new ProcessingException(element, "@JsonField field must be an instance field accessible from "
+                        + codecPackage);
+            }
+            fields.add(new Codec.Property(jsonName, element.getSimpleName().toString(), element.asType(), element));
+        }
+        return new Codec.Encoder(checkJsonNames(type, fields));
+    }
+
+    private static void requireAccessible(Element element) throws ProcessingException {
+        if (element.getModifiers().contains(Modifier.PRIVATE)) {
+            throw new ProcessingException(element, "Codec annotations can't be used on private elements");
+        }
+    }
+
+    private static List<Codec.Property> checkJsonNames(Element element, List<Codec.Property> properties)
+            throws ProcessingException {
+        Set<String> names = new HashSet<>();
+        for (Codec.Property property : properties) {
+            if (property.jsonName != null && !names.add(property.jsonName)) {
+                throw new ProcessingException(property.element, "Duplicate JSON field '" + property.jsonName + "'");
+            }
+        }
+        if (names.isEmpty()) {
+            throw new ProcessingException(element, "No @JsonField found");
+        }
+        return properties;
+    }
+
+    /**
+     * Get the name of the JSON field from {@code @JsonField}, {@code null} when not annotated
+     */
+    private static String getJsonName(Element element) {
+        for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+            TypeElement annotationType = (TypeElement) annotation.getAnnotationType().asElement();
+            if (!annotationType.getQualifiedName().contentEquals(JSON_FIELD)) {
+                continue;
+            }
+
+            for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry
+                    : annotation.getElementValues().entrySet()) {
+                if (entry.getKey().getSimpleName().contentEquals("value")) {
+                    return (String) entry.getValue().getValue();
+                }
+            }
+        }
+        return null;
+    }
+}
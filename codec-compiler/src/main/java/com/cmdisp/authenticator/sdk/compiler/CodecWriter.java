@@ -0,0 +1,431 @@
+/*
+ * Copyright (c) 2017 CM Telecom B.V.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.cmdisp.authenticator.sdk.compiler;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+
+/**
+ * Writes the source of a codec
+ * <p>
+ * Decoders read the fields with a switch on the field name straight from the {@code JsonReader}, invalid values
+ * are read as {@code null}, so primitives keep their default. Encoders add the fields to a
+ * {@code JsonRequestBodyBuilder}.
+ */
+final class CodecWriter {
+    private static final String JSON_READER = "android.util.JsonReader";
+    private static final String JSON_TOKEN = "android.util.JsonToken";
+    private static final String JSON_UTIL = "com.cmdisp.authenticator.sdk.util.JsonUtil";
+    private static final String JSON_REQUEST_BODY_BUILDER = "com.cmdisp.authenticator.sdk.util.JsonRequestBodyBuilder";
+    private static final String REQUEST_BODY = "okhttp3.RequestBody";
+
+    private final ProcessingEnvironment env;
+    private final String codecPackage;
+    private final Map<String, Codec> codecs;
+    private final Codec codec;
+
+    private final Set<String> imports = new TreeSet<>();
+    /** Imported simple names, to fall back to the qualified name on conflicts */
+    private final Map<String, String> importedNames = new HashMap<>();
+    private final StringBuilder body = new StringBuilder();
+    private int indent;
+
+    CodecWriter(ProcessingEnvironment env, String codecPackage, Map<String, Codec> codecs, Codec codec) {
+        this.env = env;
+        this.codecPackage = codecPackage;
+        this.codecs = codecs;
+        this.codec = codec;
+    }
+
+    void write() throws IOException, ProcessingException {
+        String valueType = name(codec.valueType);
+
+        line("/**");
+        line(" * Codec for {@link %s}", valueType);
+        line(" */");
+        line("public final class %s {", codec.name);
+        indent++;
+        line("");
+        line("private %s() {", codec.name);
+        line("}");
+
+        if (codec.decoder != null) {
+            writeDecoder(codec.decoder, valueType);
+        }
+        if (codec.encoder != null) {
+            writeEncoder(codec.encoder, valueType);
+        }
+
+        indent--;
+        line("}");
+
+        Element[] originatingElements = codec.originatingElements.toArray(new Element[0]);
+        try (Writer writer = env.getFiler()
+                .createSourceFile(codecPackage + "." + codec.name, originatingElements)
+                .openWriter()) {
+            writer.write("// Generated by " + CodecProcessor.class.getSimpleName() + ", do not edit\n\n");
+            writer.write("package " + codecPackage + ";\n\n");
+
+            String group = null;
+            for (String qualifiedName : imports) {
+                String importGroup = qualifiedName.substring(0, qualifiedName.indexOf('.'));
+                if (group != null && !group.equals(importGroup)) {
+                    writer.write("\n");
+                }
+                group = importGroup;
+                writer.write("import " + qualifiedName + ";\n");
+            }
+            writer.write("\n");
+            writer.write(body.toString());
+        }
+    }
+
+    private void writeDecoder(Codec.Decoder decoder, String valueType) throws ProcessingException {
+        String reader = name(JSON_READER);
+        String ioException = name("java.io.IOException");
+
+        line("");
+        line("/**");
+        line(" * Read the value");
+        line(" *");
+        line(" * @throws IllegalStateException when the value is not an object");
+        line(" */");
+        line("public static %s read(%s reader) throws %s {", valueType, reader, ioException);
+        indent++;
+        if (decoder.builder != null) {
+            line("return read(reader, new %s());", name(decoder.builder));
+        } else {
+            for (Codec.Property property : decoder.properties) {
+                if (property.jsonName != null) {
+                    line("%s %s = %s;", name(property.type, property.element), property.name,
+                            defaultValue(property.type));
+                }
+            }
+            line("");
+            writeFields(decoder);
+            line("");
+
+            StringBuilder arguments = new StringBuilder();
+            for (Codec.Property property : decoder.properties) {
+                if (arguments.length() > 0) {
+                    arguments.append(", ");
+                }
+                arguments.append(property.jsonName != null ? property.name : defaultValue(property.type));
+            }
+            line("return new %s(%s);", valueType, arguments);
+        }
+        indent--;
+        line("}");
+
+        if (decoder.builder != null) {
+            String builder = name(decoder.builder);
+            line("");
+            line("/**");
+            line(" * Read the value using the builder, fields missing from the object keep the value set on the builder");
+            line(" *");
+            line(" * @throws IllegalStateException when the value is not an object");
+            line(" */");
+            line("public static %s read(%s reader, %s builder) throws %s {", valueType, reader, builder, ioException);
+            indent++;
+            writeFields(decoder);
+            line("return builder.build();");
+            indent--;
+            line("}");
+        }
+
+        line("");
+        line("/**");
+        line(" * Read a list of values into the list, values which are not an object are skipped");
+        line(" */");
+        line("public static void readList(%s reader, %s<? super %s> list) throws %s {",
+                reader, name("java.util.List"), valueType, ioException);
+        indent++;
+        line("reader.beginArray();");
+        line("while (reader.hasNext()) {");
+        indent++;
+        line("if (reader.peek() == %s.BEGIN_OBJECT) {", name(JSON_TOKEN));
+        line("    list.add(read(reader));");
+        line("} else {");
+        line("    reader.skipValue();");
+        line("}");
+        indent--;
+        line("}");
+        line("reader.endArray();");
+        indent--;
+        line("}");
+    }
+
+    /**
+     * Write the loop reading the fields of the object into the builder or the local variables
+     */
+    private void writeFields(Codec.Decoder decoder) throws ProcessingException {
+        line("reader.beginObject();");
+        line("while (reader.hasNext()) {");
+        indent++;
+        line("switch (reader.nextName()) {");
+        indent++;
+        for (Codec.Property property : decoder.properties) {
+            if (property.jsonName == null) {
+                continue;
+            }
+
+            String target = decoder.builder != null ? "builder." + property.name + "(%s);" : property.name + " = %s;";
+            Codec nested = getNestedCodec(property.type);
+            boolean primitive = property.type.getKind().isPrimitive();
+            line(primitive ? "case %s: {" : "case %s:", literal(property.jsonName));
+            indent++;
+
+            if (nested != null) {
+                // nested values are optional, anything but an object is read as null
+                line("if (reader.peek() == %s.BEGIN_OBJECT) {", name(JSON_TOKEN));
+                line("    " + target, nested.name + ".read(reader)");
+                line("} else {");
+                line("    reader.skipValue();");
+                line("}");
+            } else if (primitive) {
+                // keep the default of the primitive when the value is missing or invalid
+                line("%s value = %s;", name(boxedType(property)), readExpression(property));
+                line("if (value != null) {");
+                line("    " + target, "value");
+                line("}");
+            } else {
+                line(target, readExpression(property));
+            }
+
+            line("break;");
+            indent--;
+            if (primitive) {
+                line("}");
+            }
+        }
+        line("default:");
+        line("    reader.skipValue();");
+        line("    break;");
+        indent--;
+        line("}");
+        indent--;
+        line("}");
+        line("reader.endObject();");
+    }
+
+    /**
+     * Get the codec of a nested value, {@code null} when the type has no decoder
+     */
+    private Codec getNestedCodec(TypeMirror type) {
+        if (type.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        Codec nested = codecs.get(asTypeElement(type).getQualifiedName().toString());
+        return nested != null && nested.decoder != null ? nested : null;
+    }
+
+    /**
+     * Get the expression reading the value of the property, which is {@code null} when it's missing or invalid
+     */
+    private String readExpression(Codec.Property property) throws ProcessingException {
+        String jsonUtil = name(JSON_UTIL);
+        switch (boxedName(property)) {
+            case "java.lang.String":
+                return jsonUtil + ".nextString(reader)";
+            case "java.lang.Boolean":
+                return jsonUtil + ".nextBoolean(reader)";
+            case "java.lang.Integer":
+                return jsonUtil + ".nextInteger(reader)";
+            case "java.lang.Double":
+                return jsonUtil + ".nextDouble(reader)";
+            case "java.util.Date":
+                return jsonUtil + ".nextDate(reader)";
+        }
+
+        TypeElement type = asTypeElement(property.type);
+        if (type != null && type.getKind() == ElementKind.ENUM && hasMethod(type, "fromString", true)) {
+            return name(type) + ".fromString(" + jsonUtil + ".nextString(reader))";
+        }
+        throw new ProcessingException(property.element, "Can't decode " + property.type
+                + ", supported are String, Boolean, Integer, Double, Date, enums with fromString(String) "
+                + "and types with a @JsonDecoder");
+    }
+
+    private void writeEncoder(Codec.Encoder encoder, String valueType) throws ProcessingException {
+        line("");
+        line("/**");
+        line(" * Write the value, {@code null} fields are left out");
+        line(" */");
+        line("public static %s write(%s value) {", name(REQUEST_BODY), valueType);
+        indent++;
+        line("return new %s()", name(JSON_REQUEST_BODY_BUILDER));
+        indent += 2;
+        for (Codec.Property field : encoder.fields) {
+            line(".add(%s, %s)", literal(field.jsonName), writeExpression(field));
+        }
+        line(".build();");
+        indent -= 2;
+        indent--;
+        line("}");
+    }
+
+    /**
+     * Get the expression of the value of the field as written to the JSON
+     */
+    private String writeExpression(Codec.Property field) throws ProcessingException {
+        String value = "value." + field.name;
+        switch (boxedName(field)) {
+            case "java.lang.String":
+            case "java.lang.Boolean":
+            case "java.lang.Integer":
+            case "java.lang.Long":
+            case "java.lang.Double":
+                return value;
+        }
+
+        TypeElement type = asTypeElement(field.type);
+        if (type != null && type.getKind() == ElementKind.ENUM && hasMethod(type, "getValue", false)) {
+            return value + " != null ? " + value + ".getValue() : null";
+        }
+        throw new ProcessingException(field.element, "Can't encode " + field.type
+                + ", supported are String, Boolean, Integer, Long, Double and enums with getValue()");
+    }
+
+    /**
+     * Get the type of the property, boxing primitives
+     */
+    private TypeElement boxedType(Codec.Property property) {
+        TypeMirror type = property.type;
+        if (type.getKind().isPrimitive()) {
+            return env.getTypeUtils().boxedClass(env.getTypeUtils().getPrimitiveType(type.getKind()));
+        }
+        return asTypeElement(type);
+    }
+
+    /**
+     * Get the qualified name of the type of the property, boxing primitives
+     */
+    private String boxedName(Codec.Property property) {
+        TypeElement type = boxedType(property);
+        return type != null ? type.getQualifiedName().toString() : property.type.toString();
+    }
+
+    private TypeElement asTypeElement(TypeMirror type) {
+        Element element = env.getTypeUtils().asElement(type);
+        return element instanceof TypeElement ? (TypeElement) element : null;
+    }
+
+    private static boolean hasMethod(TypeElement type, String name, boolean isStatic) {
+        for (Element element : type.getEnclosedElements()) {
+            if (element.getKind() == ElementKind.METHOD && element.getSimpleName().contentEquals(name)
+                    && element.getModifiers().contains(Modifier.STATIC) == isStatic
+                    && !element.getModifiers().contains(Modifier.PRIVATE)
+                    && ((ExecutableElement) element).getParameters().size() == (isStatic ? 1 : 0)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String defaultValue(TypeMirror type) {
+        switch (type.getKind()) {
+            case BOOLEAN:
+                return "false";
+            case BYTE:
+            case SHORT:
+            case CHAR:
+                return "(" + type + ") 0";
+            case INT:
+            case LONG:
+            case FLOAT:
+            case DOUBLE:
+                return "0";
+            default:
+                return "null";
+        }
+    }
+
+    /**
+     * Get the name to refer to the type with, importing it when possible
+     */
+    private String name(TypeMirror type, Element element) throws ProcessingException {
+        if (type.getKind().isPrimitive()) {
+            return type.toString();
+        }
+        TypeElement typeElement = asTypeElement(type);
+        if (typeElement == null || type.toString().contains("<")) {
+            throw new ProcessingException(element, "Can't decode " + type);
+        }
+        return name(typeElement);
+    }
+
+    private String name(String qualifiedName) {
+        return name(env.getElementUtils().getTypeElement(qualifiedName));
+    }
+
+    private String name(TypeElement type) {
+        // import the top level class, nested classes are referred to through it
+        TypeElement topLevel = type;
+        StringBuilder nestedNames = new StringBuilder();
+        while (topLevel.getEnclosingElement() instanceof TypeElement) {
+            nestedNames.insert(0, "." + topLevel.getSimpleName());
+            topLevel = (TypeElement) topLevel.getEnclosingElement();
+        }
+
+        String qualifiedName = topLevel.getQualifiedName().toString();
+        String simpleName = topLevel.getSimpleName().toString();
+        String packageName = env.getElementUtils().getPackageOf(topLevel).getQualifiedName().toString();
+        if (!packageName.equals("java.lang") && !packageName.equals(codecPackage)) {
+            String imported = importedNames.get(simpleName);
+            if (imported == null) {
+                importedNames.put(simpleName, qualifiedName);
+                imports.add(qualifiedName);
+            } else if (!imported.equals(qualifiedName)) {
+                return qualifiedName + nestedNames;
+            }
+        }
+        return simpleName + nestedNames;
+    }
+
+    private static String literal(String value) {
+        return '"' + value.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+    }
+
+    private void line(String format, Object... args) {
+        if (!format.isEmpty()) {
+            for (int i = 0; i < indent; i++) {
+                body.append("    ");
+            }
+            body.append(args.length == 0 ? format : String.format(format, args));
+        }
+        body.append('\n');
+    }
+}
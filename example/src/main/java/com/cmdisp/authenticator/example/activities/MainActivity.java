@@ -159,6 +159,12 @@ public class MainActivity extends AppCompatActivity {
     private void getAuthenticationRequest() {
         if (environment == null) return;
 
+        // show the prefetched request right away, the call below revalidates it
+        AuthenticationRequest cached = Authenticator.environmentClient().getCachedAuthenticationRequest(environment.getId());
+        if (cached != null) {
+            setAuthenticationRequest(cached);
+        }
+
         Authenticator.environmentClient().getAuthenticationRequest(environment, new MainCallback<AuthenticationRequest>() {
             @Override
             public void onSuccess(AuthenticationRequest authReq) {
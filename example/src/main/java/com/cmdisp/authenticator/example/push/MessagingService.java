@@ -24,8 +24,10 @@ package com.cmdisp.authenticator.example.push;
 
 import android.content.Intent;
 
+import com.cmdisp.authenticator.example.managers.EnvironmentManager;
 import com.cmdisp.authenticator.sdk.helpers.PushHelper;
 import com.cmdisp.authenticator.sdk.models.BaseAuthenticationRequest;
+import com.cmdisp.authenticator.sdk.models.Environment;
 import com.google.firebase.messaging.FirebaseMessagingService;
 import com.google.firebase.messaging.RemoteMessage;
 
@@ -40,6 +42,11 @@ public class MessagingService extends FirebaseMessagingService {
             case INSTANT:
             case OTP:
                 BaseAuthenticationRequest authReq = pushHelper.getAuthenticationRequest();
+                // fetch the details already, so they can be shown right away
+                Environment environment = EnvironmentManager.getEnvironment(this);
+                if (environment != null) {
+                    pushHelper.prefetchAuthenticationRequest(environment);
+                }
                 broadcast = new Intent(PushConstants.ACTION_AUTH_REQ);
                 broadcast.putExtra(PushConstants.EXTRA_AUTH_REQ, authReq);
                 break;
@@ -36,10 +36,15 @@ import com.cmdisp.authenticator.sdk.api.DeviceClient;
 import com.cmdisp.authenticator.sdk.api.DeviceClientImpl;
 import com.cmdisp.authenticator.sdk.api.EnvironmentClient;
 import com.cmdisp.authenticator.sdk.api.EnvironmentClientImpl;
+import com.cmdisp.authenticator.sdk.api.HttpEngine;
 import com.cmdisp.authenticator.sdk.api.RestClient;
+import com.cmdisp.authenticator.sdk.managers.AuthenticationRequestCache;
 import com.cmdisp.authenticator.sdk.managers.CertificateManager;
 import com.cmdisp.authenticator.sdk.managers.DeviceManager;
 import com.cmdisp.authenticator.sdk.managers.DeviceRegistrationLifecycleCallback;
+import com.cmdisp.authenticator.sdk.models.NetworkMetrics;
+
+import okhttp3.OkHttpClient;
 
 /**
  * Entry point to the SDK. It's required to {@link #init(Context, String) initialize} before calling any other method.
@@ -48,6 +53,7 @@ public class Authenticator {
     private static final String TAG = Authenticator.class.getSimpleName();
     private static final String DEFAULT_API_URL = "https://api.auth.cmtelecom.com/authenticator/v1.0";
     private static final String DEFAULT_CERTIFICATE = "sha256/opbrnmGQhRgt/hnidpLFyJZBjDLo3tN/cIA4YafwQcs=";
+    private static final int DEFAULT_MAX_RETRIES = 2;
 
     private static RestClient restClient;
 
@@ -78,20 +84,35 @@ public class Authenticator {
             throw new IllegalStateException("Authenticator is already initialized");
         }
 
-        CertClient certClient = new CertClient(config.apiUrl);
+        OkHttpClient httpEngine = HttpEngine.create(config.context, config.apiUrl);
+        CertClient certClient = new CertClient(config.apiUrl, httpEngine);
         CertificateManager certManager = new CertificateManager(config.context, certClient, config.initialCertificate);
         DeviceManager deviceManager = new DeviceManager(config.context);
+        AuthenticationRequestCache authRequestCache = new AuthenticationRequestCache();
 
-        restClient = new RestClient(config.appName, config.appVersion, config.apiUrl, certManager);
-        authClient = new AuthClientImpl(restClient);
+        restClient = new RestClient(config.appName, config.appVersion, config.apiUrl, httpEngine, certClient,
+                certManager, config.maxRetries);
+        authClient = new AuthClientImpl(restClient, authRequestCache);
         deviceClient = new DeviceClientImpl(restClient, config.context, config.appKey, deviceManager);
-        environmentClient = new EnvironmentClientImpl(restClient);
+        environmentClient = new EnvironmentClientImpl(restClient, authRequestCache);
 
         Context appContext = config.context.getApplicationContext();
         if (appContext instanceof Application) {
             Application application = (Application) appContext;
             application.registerActivityLifecycleCallbacks(new DeviceRegistrationLifecycleCallback(deviceManager));
         }
+
+        restClient.warmUp();
+    }
+
+    /**
+     * Set up a connection to the API in the background, e.g. when a push message arrives, so the next call
+     * doesn't have to wait for it. Does nothing when the SDK is not initialized or a connection is available.
+     */
+    public static void warmUp() {
+        if (restClient != null) {
+            restClient.warmUp();
+        }
     }
 
     /**
@@ -121,6 +142,15 @@ public class Authenticator {
         return environmentClient;
     }
 
+    /**
+     * Get a snapshot of the metrics of the calls made to the API, e.g. to report them to your analytics
+     */
+    @NonNull
+    public static NetworkMetrics networkMetrics() {
+        requireInitialization();
+        return restClient.getMetrics();
+    }
+
     private static void requireInitialization() {
         if (restClient == null) {
             throw new IllegalStateException("Authenticator is not initialized, initialize it before using it");
@@ -137,6 +167,7 @@ public class Authenticator {
         private String appVersion;
         private String apiUrl = DEFAULT_API_URL;
         private String initialCertificate = DEFAULT_CERTIFICATE;
+        private int maxRetries = DEFAULT_MAX_RETRIES;
 
         /**
          * Configuration with the app name and version retrieved from the package
@@ -196,5 +227,20 @@ public class Authenticator {
             this.initialCertificate = initialCertificate;
             return this;
         }
+
+        /**
+         * Set the maximum number of times a failed API call is retried, 0 disables retrying
+         * <p>
+         * Only transient failures are retried, and approving or denying an authentication request only when
+         * it could not have reached the server.
+         */
+        @NonNull
+        public Config setMaxRetries(int maxRetries) {
+            if (maxRetries < 0) {
+                throw new IllegalArgumentException("maxRetries may not be negative");
+            }
+            this.maxRetries = maxRetries;
+            return this;
+        }
     }
 }
@@ -26,11 +26,16 @@ import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
 import com.cmdisp.authenticator.sdk.callback.Callback;
+import com.cmdisp.authenticator.sdk.exceptions.AuthRequestExpiredException;
 import com.cmdisp.authenticator.sdk.models.BaseAuthenticationRequest;
 import com.cmdisp.authenticator.sdk.models.Environment;
 import com.cmdisp.authenticator.sdk.models.Status;
+import com.cmdisp.authenticator.sdk.models.StatusUpdate;
+import com.cmdisp.authenticator.sdk.models.StatusUpdateResults;
 import com.cmdisp.authenticator.sdk.models.Type;
 
+import java.util.List;
+
 public interface AuthClient {
     /**
      * Update the open authentication request by changing it's status
@@ -45,6 +50,9 @@ public interface AuthClient {
 
     /**
      * Update the open authentication request by changing it's status
+     * <p>
+     * Fails with an {@link AuthRequestExpiredException} without calling the API when the request is known to be
+     * expired.
      *
      * @param authId    authentication request id of type {@link Type#INSTANT INSTANT} with status {@link Status#OPEN OPEN}
      * @param envSecret environment secret matching the authentication request
@@ -52,4 +60,14 @@ public interface AuthClient {
      */
     void updateStatus(@NonNull String authId, @NonNull String envSecret,
                       @NonNull Status status, @Nullable Callback<Status> callback);
+
+    /**
+     * Update multiple open authentication requests at once
+     * <p>
+     * The updates are sent concurrently. The callback is called once all of them have completed, with the
+     * result of every update. A failing update doesn't affect the others.
+     *
+     * @param updates status updates of authentication requests of type {@link Type#INSTANT INSTANT}
+     */
+    void updateStatus(@NonNull List<StatusUpdate> updates, @NonNull Callback<StatusUpdateResults> callback);
 }
@@ -22,22 +22,32 @@
 
 package com.cmdisp.authenticator.sdk.api;
 
+import android.os.SystemClock;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.annotation.RestrictTo;
+import android.util.JsonReader;
 
-import com.cmdisp.authenticator.sdk.api.callback.JsonObjectResponseCallback;
+import com.cmdisp.authenticator.sdk.api.RequestScheduler.Priority;
+import com.cmdisp.authenticator.sdk.api.callback.JsonResponseCallback;
+import com.cmdisp.authenticator.sdk.api.codec.StatusPayload;
+import com.cmdisp.authenticator.sdk.api.codec.StatusPayloadCodec;
 import com.cmdisp.authenticator.sdk.callback.Callback;
 import com.cmdisp.authenticator.sdk.exceptions.AuthRequestExpiredException;
 import com.cmdisp.authenticator.sdk.exceptions.HttpException;
+import com.cmdisp.authenticator.sdk.managers.AuthenticationRequestCache;
 import com.cmdisp.authenticator.sdk.models.BaseAuthenticationRequest;
 import com.cmdisp.authenticator.sdk.models.Environment;
 import com.cmdisp.authenticator.sdk.models.Status;
+import com.cmdisp.authenticator.sdk.models.StatusUpdate;
+import com.cmdisp.authenticator.sdk.models.StatusUpdateResults;
 import com.cmdisp.authenticator.sdk.models.Type;
-import com.cmdisp.authenticator.sdk.util.JsonRequestBodyBuilder;
 
-import org.json.JSONException;
-import org.json.JSONObject;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import okhttp3.Request;
 import okhttp3.RequestBody;
@@ -47,9 +57,11 @@ import static java.net.HttpURLConnection.HTTP_GONE;
 @RestrictTo(RestrictTo.Scope.LIBRARY)
 public class AuthClientImpl implements AuthClient {
     private final RestClient restClient;
+    private final AuthenticationRequestCache authRequestCache;
 
-    public AuthClientImpl(RestClient restClient) {
+    public AuthClientImpl(RestClient restClient, AuthenticationRequestCache authRequestCache) {
         this.restClient = restClient;
+        this.authRequestCache = authRequestCache;
     }
 
     private String getBaseUrl() {
@@ -69,6 +81,50 @@ public class AuthClientImpl implements AuthClient {
         }
     }
 
+    @Override
+    public void updateStatus(@NonNull List<StatusUpdate> updates, @NonNull Callback<StatusUpdateResults> callback) {
+        int count = updates.size();
+        if (count == 0) {
+            callback.handleOnSuccess(new StatusUpdateResults(Collections.emptyList(), 0));
+            return;
+        }
+
+        StatusUpdateResults.Result[] results = new StatusUpdateResults.Result[count];
+        AtomicInteger remaining = new AtomicInteger(count);
+        long start = SystemClock.elapsedRealtime();
+
+        for (int i = 0; i < count; i++) {
+            int index = i;
+            StatusUpdate update = updates.get(i);
+            Callback<Status> itemCallback = new Callback<Status>() {
+                @Override
+                public void onSuccess(Status status) {
+                    complete(status, null);
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    complete(null, e);
+                }
+
+                private void complete(Status status, Exception e) {
+                    long now = SystemClock.elapsedRealtime();
+                    results[index] = new StatusUpdateResults.Result(update, status, e, now - start);
+                    if (remaining.decrementAndGet() == 0) {
+                        callback.handleOnSuccess(new StatusUpdateResults(Arrays.asList(results), now - start));
+                    }
+                }
+            };
+
+            try {
+                updateStatus(update.getAuthenticationRequest(), update.getEnvironment(), update.getStatus(),
+                        itemCallback);
+            } catch (IllegalArgumentException e) {
+                itemCallback.handleOnFailure(e);
+            }
+        }
+    }
+
     @Override
     public void updateStatus(@NonNull final String authReqId, @NonNull String envSecret,
                              @NonNull Status status, @Nullable Callback<Status> callback) {
@@ -76,41 +132,48 @@ public class AuthClientImpl implements AuthClient {
             throw new IllegalArgumentException("auth request status should be APPROVED or DENIED");
         }
 
-        RequestBody body = new JsonRequestBodyBuilder()
-                .add("auth_status", status.getValue())
-                .build();
+        if (authRequestCache.isExpired(authReqId)) {
+            // known to be expired, the API would respond with gone
+            if (callback != null) {
+                callback.handleOnFailure(new AuthRequestExpiredException());
+            }
+            return;
+        }
+
+        RequestBody body = StatusPayloadCodec.write(new StatusPayload(status));
 
-        Request.Builder requestBuilder = new Request.Builder()
+        Request request = new Request.Builder()
                 .url(getBaseUrl() + "/instant/" + authReqId)
                 .put(body)
-                .header(HeaderInterceptor.AUTHORIZATION_SECRET, envSecret);
+                .tag(new SigningInfo(envSecret).claim("auth_id", authReqId))
+                .build();
 
-        try {
-            String payload = new JSONObject().put("auth_id", authReqId).toString();
-            requestBuilder.header(HeaderInterceptor.AUTHORIZATION_PAYLOAD, payload);
-        } catch (JSONException ignored) {}
+        restClient.callAsync(request, Priority.CRITICAL, RetryPolicy.UNSENT_ONLY, new JsonResponseCallback<Status>() {
+            @Override
+            protected Status parse(JsonReader reader) throws IOException {
+                return StatusPayloadCodec.read(reader).getStatus();
+            }
 
-        restClient.callAsync(requestBuilder.build(), new JsonObjectResponseCallback() {
             @Override
-            protected void onResponse(int statusCode, JSONObject jsonObject) {
+            protected void onResponse(int statusCode, Status responseStatus) {
+                authRequestCache.remove(authReqId);
                 if (callback == null) {
                     return;
                 }
 
-                String responseStatusStr = jsonObject.optString("auth_status");
-                Status responseStatus = Status.fromString(responseStatusStr);
                 callback.handleOnSuccess(responseStatus);
             }
 
             @Override
             protected void onFailure(Exception e) {
-                if (callback == null) return;
-
                 if (e instanceof HttpException && ((HttpException) e).code() == HTTP_GONE) {
                     // gone, authentication request has expired
+                    authRequestCache.markExpired(authReqId);
                     e = new AuthRequestExpiredException();
                 }
-                callback.handleOnFailure(e);
+                if (callback != null) {
+                    callback.handleOnFailure(e);
+                }
             }
         });
     }
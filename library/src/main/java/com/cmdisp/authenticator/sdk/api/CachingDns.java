@@ -0,0 +1,253 @@
+/*
+ * Copyright (c) 2017 CM Telecom B.V.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.cmdisp.authenticator.sdk.api;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.text.TextUtils;
+import android.text.format.DateUtils;
+import android.util.Log;
+
+import com.cmdisp.authenticator.sdk.BuildConfig;
+
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+import okhttp3.Dns;
+
+/**
+ * DNS resolver which caches the addresses of the API hosts and persists them across process restarts
+ * <p>
+ * Fresh addresses are served from the cache. Stale addresses are served as well, while they are refreshed in
+ * the background, so only the very first lookup of a host waits for the system resolver. The system resolver
+ * doesn't expose the TTL of the records, so a fixed TTL is used instead, and the addresses of a host are
+ * evicted as soon as connecting to them fails. The addresses are ordered alternating between IPv4 and IPv6,
+ * starting with the family which connected last.
+ * <p>
+ * Other hosts are passed to the delegate as they are.
+ */
+final class CachingDns implements Dns {
+    private static final String TAG = CachingDns.class.getSimpleName();
+    private static final String PREF_FILE_NAME = BuildConfig.APPLICATION_ID + ".dns_cache";
+    private static final String PREF_KEY_ADDRESSES = "addresses_";
+    private static final String PREF_KEY_RESOLVED_AT = "resolved_at_";
+
+    /** Duration the addresses are fresh */
+    private static final long TTL = 5 * DateUtils.MINUTE_IN_MILLIS;
+    /** Maximum duration stale addresses are served while refreshing */
+    private static final long MAX_STALE = DateUtils.DAY_IN_MILLIS;
+
+    private final Executor executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Authenticator DNS refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final SharedPreferences preferences;
+    private final Dns delegate;
+    private final Set<String> hosts;
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final Set<String> refreshing = new HashSet<>();
+    private volatile boolean preferIpv6;
+
+    /**
+     * @param hosts the hosts to cache the addresses of
+     */
+    CachingDns(Context context, Dns delegate, Set<String> hosts) {
+        this.preferences = context.getSharedPreferences(PREF_FILE_NAME, Context.MODE_PRIVATE);
+        this.delegate = delegate;
+        this.hosts = hosts;
+    }
+
+    @Override
+    public List<InetAddress> lookup(String hostname) throws UnknownHostException {
+        if (!hosts.contains(hostname)) {
+            return delegate.lookup(hostname);
+        }
+
+        Entry entry = getEntry(hostname);
+        long age = entry == null ? Long.MAX_VALUE : System.currentTimeMillis() - entry.resolvedAt;
+
+        if (age < 0 || age >= MAX_STALE) {
+            return order(resolve(hostname));
+        } else if (age >= TTL) {
+            refresh(hostname);
+        }
+        return order(entry.addresses);
+    }
+
+    /**
+     * Report a successful connection, the address family is preferred for the next lookups
+     */
+    void connected(InetAddress address) {
+        preferIpv6 = address instanceof Inet6Address;
+    }
+
+    /**
+     * Report a failed connection to the host, its addresses are evicted so the next lookup resolves them again
+     */
+    void connectFailed(String hostname) {
+        if (!hosts.contains(hostname)) {
+            return;
+        }
+
+        synchronized (this) {
+            entries.remove(hostname);
+        }
+        preferences.edit()
+                .remove(PREF_KEY_ADDRESSES + hostname)
+                .remove(PREF_KEY_RESOLVED_AT + hostname)
+                .apply();
+    }
+
+    /**
+     * Resolve the addresses using the delegate and write them through
+     */
+    private List<InetAddress> resolve(String hostname) throws UnknownHostException {
+        List<InetAddress> addresses = delegate.lookup(hostname);
+        Entry entry = new Entry(addresses, System.currentTimeMillis());
+        synchronized (this) {
+            entries.put(hostname, entry);
+        }
+        store(hostname, entry);
+        return addresses;
+    }
+
+    /**
+     * Resolve the addresses in the background, unless a refresh is running already
+     */
+    private void refresh(String hostname) {
+        synchronized (this) {
+            if (!refreshing.add(hostname)) {
+                return;
+            }
+        }
+
+        executor.execute(() -> {
+            try {
+                resolve(hostname);
+            } catch (UnknownHostException e) {
+                Log.w(TAG, "Could not refresh the addresses of " + hostname, e);
+            } finally {
+                synchronized (this) {
+                    refreshing.remove(hostname);
+                }
+            }
+        });
+    }
+
+    private Entry getEntry(String hostname) {
+        synchronized (this) {
+            Entry entry = entries.get(hostname);
+            if (entry != null) {
+                return entry;
+            }
+        }
+
+        Entry entry = load(hostname);
+        if (entry != null) {
+            synchronized (this) {
+                if (!entries.containsKey(hostname)) {
+                    entries.put(hostname, entry);
+                }
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Load the last-good addresses from the storage
+     */
+    private Entry load(String hostname) {
+        String stored = preferences.getString(PREF_KEY_ADDRESSES + hostname, null);
+        long resolvedAt = preferences.getLong(PREF_KEY_RESOLVED_AT + hostname, 0);
+        if (TextUtils.isEmpty(stored)) {
+            return null;
+        }
+
+        List<InetAddress> addresses = new ArrayList<>();
+        for (String address : stored.split(",")) {
+            try {
+                // the address is a literal, so no lookup is done
+                addresses.add(InetAddress.getByAddress(hostname, InetAddress.getByName(address).getAddress()));
+            } catch (UnknownHostException e) {
+                Log.e(TAG, "Could not load address: " + address, e);
+            }
+        }
+        return addresses.isEmpty() ? null : new Entry(addresses, resolvedAt);
+    }
+
+    /**
+     * Write the addresses to the storage
+     */
+    private void store(String hostname, Entry entry) {
+        List<String> addresses = new ArrayList<>(entry.addresses.size());
+        for (InetAddress address : entry.addresses) {
+            addresses.add(address.getHostAddress());
+        }
+
+        preferences.edit()
+                .putString(PREF_KEY_ADDRESSES + hostname, TextUtils.join(",", addresses))
+                .putLong(PREF_KEY_RESOLVED_AT + hostname, entry.resolvedAt)
+                .apply();
+    }
+
+    /**
+     * Order the addresses alternating between IPv4 and IPv6, starting with the preferred family
+     */
+    private List<InetAddress> order(List<InetAddress> addresses) {
+        List<InetAddress> ipv4 = new ArrayList<>();
+        List<InetAddress> ipv6 = new ArrayList<>();
+        for (InetAddress address : addresses) {
+            (address instanceof Inet6Address ? ipv6 : ipv4).add(address);
+        }
+
+        List<InetAddress> first = preferIpv6 ? ipv6 : ipv4;
+        List<InetAddress> second = preferIpv6 ? ipv4 : ipv6;
+        List<InetAddress> ordered = new ArrayList<>(addresses.size());
+        for (int i = 0; i < Math.max(first.size(), second.size()); i++) {
+            if (i < first.size()) ordered.add(first.get(i));
+            if (i < second.size()) ordered.add(second.get(i));
+        }
+        return ordered;
+    }
+
+    private static final class Entry {
+        private final List<InetAddress> addresses;
+        private final long resolvedAt;
+
+        private Entry(List<InetAddress> addresses, long resolvedAt) {
+            this.addresses = addresses;
+            this.resolvedAt = resolvedAt;
+        }
+    }
+}
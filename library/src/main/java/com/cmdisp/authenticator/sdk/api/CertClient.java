@@ -25,32 +25,33 @@ package com.cmdisp.authenticator.sdk.api;
 import android.support.annotation.NonNull;
 import android.support.annotation.RestrictTo;
 import android.util.Base64;
+import android.util.JsonReader;
 
-import com.cmdisp.authenticator.sdk.api.callback.JsonArrayResponseCallback;
-import com.cmdisp.authenticator.sdk.callback.Callback;
-
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
+import com.cmdisp.authenticator.sdk.util.JsonUtil;
 
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.nio.charset.Charset;
 import java.security.GeneralSecurityException;
-import java.security.KeyFactory;
-import java.security.PublicKey;
-import java.security.Signature;
-import java.security.spec.X509EncodedKeySpec;
-import java.util.Collections;
 import java.util.HashSet;
 import java.util.Locale;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
 
-import okhttp3.ConnectionSpec;
+import okhttp3.Call;
+import okhttp3.Callback;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
+import okhttp3.ResponseBody;
 
 @RestrictTo(RestrictTo.Scope.LIBRARY)
 public class CertClient {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
     /**
      * Public key used to verify the response from the API
      */
@@ -63,105 +64,185 @@ public class CertClient {
                     "tEuPhsBiWt+HBiq1tqMT5DJZ3hj+vM/mgzaWRQhzz661E+D61R2/jhLf9Hx6SBBB" +
                     "MQIDAQAB";
 
+    private static final SignatureVerifier VERIFIER = new SignatureVerifier(PUBLIC_KEY);
+
     private final String url;
     private final OkHttpClient client;
+    private volatile RequestScheduler scheduler;
 
-    public CertClient(String baseApiUrl) {
+    /**
+     * @param baseApiUrl the base API url
+     * @param httpEngine the shared client as created by {@link HttpEngine#create(android.content.Context, String)}
+     */
+    public CertClient(String baseApiUrl, OkHttpClient httpEngine) {
         url = baseApiUrl  + "/certificate";
-        client = new OkHttpClient.Builder()
-                .connectionSpecs(Collections.singletonList(ConnectionSpec.MODERN_TLS))
-                .build();
+        client = httpEngine;
     }
 
     /**
-     * Get certificates asynchronously
+     * Schedule the calls in the background lane of the scheduler, until then they are executed directly
      */
-    public void getCertificates(@NonNull final Callback<Set<String>> listener) {
-        Request request = new Request.Builder().url(url).build();
+    void setScheduler(RequestScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
 
-        client.newCall(request).enqueue(new JsonArrayResponseCallback() {
-            @Override
-            protected void onResponse(int statusCode, JSONArray jsonArray) {
-                try {
-                    Set<String> certificates = parseCertificates(jsonArray);
-                    listener.onSuccess(certificates);
-                } catch (GeneralSecurityException | JSONException e) {
-                    listener.onFailure(e);
-                }
-            }
+    /**
+     * Get certificates synchronously, the call is scheduled in the background lane so a periodic refresh doesn't
+     * take capacity from the calls the user waits for
+     */
+    public Set<String> getCertificates() throws IOException, GeneralSecurityException {
+        RequestScheduler scheduler = this.scheduler;
+        if (scheduler == null) {
+            return getCertificatesNow();
+        }
 
-            @Override
-            protected void onFailure(Exception e) {
-                listener.onFailure(e);
-            }
-        });
+        Request request = new Request.Builder().url(url).build();
+        BlockingCallback callback = new BlockingCallback();
+        scheduler.enqueue(client, request, RequestScheduler.Priority.BACKGROUND, callback);
+        return callback.await();
     }
 
     /**
-     * Get certificates synchronously
+     * Get certificates synchronously, bypassing the scheduler
+     * <p>
+     * Used when pinning failed: the refresh runs inside a call which holds scheduler capacity already, so queuing
+     * behind other calls could deadlock.
      */
-    public Set<String> getCertificates() throws IOException, GeneralSecurityException {
+    public Set<String> getCertificatesNow() throws IOException, GeneralSecurityException {
         Request request = new Request.Builder().url(url).build();
+        return parseResponse(client.newCall(request).execute());
+    }
 
-        Response response = client.newCall(request).execute();
+    /**
+     * Parse the response to the certificates and close it
+     */
+    private static Set<String> parseResponse(Response response) throws IOException, GeneralSecurityException {
+        //noinspection ConstantConditions
+        ResponseBody body = response.body();
+        try {
+            if (!response.isSuccessful()) {
+                throw new IOException(String.format(Locale.ENGLISH, "Call failed, status code: %d\nURL: %s\nResponse body: %s",
+                        response.code(), response.request().url(), body.string()));
+            }
 
-        @SuppressWarnings("ConstantConditions")
-        String body = response.body().string();
+            return parseCertificates(new JsonReader(body.charStream()));
+        } catch (EOFException e) {
+            throw new IOException("Response body is empty", e);
+        } catch (IllegalStateException | NumberFormatException e) {
+            throw new IOException("Could not parse JSON", e);
+        } finally {
+            body.close();
+        }
+    }
 
-        if (!response.isSuccessful()) {
-            throw new IOException(String.format(Locale.ENGLISH, "Call failed, status code: %d\nURL: %s\nResponse body: %s",
-                    response.code(), response.request().url(), body));
+    /**
+     * Callback which parses the response on the thread of the call and hands the result to the waiting thread,
+     * so the scheduler capacity is held until the body is read
+     */
+    private static final class BlockingCallback implements Callback {
+        private final CountDownLatch done = new CountDownLatch(1);
+        private Set<String> certificates;
+        private Exception exception;
+
+        @Override
+        public void onFailure(Call call, IOException e) {
+            exception = e;
+            done.countDown();
         }
 
-        if (body.isEmpty()) {
-            throw new IOException("Response body is empty");
+        @Override
+        public void onResponse(Call call, Response response) {
+            try {
+                certificates = parseResponse(response);
+            } catch (IOException | GeneralSecurityException e) {
+                exception = e;
+            } finally {
+                done.countDown();
+            }
         }
 
-        try {
-            return parseCertificates(new JSONArray(body));
-        } catch (JSONException e) {
-            throw new IOException("Could not parse JSON", e);
+        private Set<String> await() throws IOException, GeneralSecurityException {
+            try {
+                done.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the certificates");
+            }
+
+            if (exception instanceof GeneralSecurityException) {
+                throw (GeneralSecurityException) exception;
+            } else if (exception != null) {
+                throw (IOException) exception;
+            }
+            return certificates;
         }
     }
 
     /**
      * Parse the JSON response to a list of certificates
      */
-    private static Set<String> parseCertificates(@NonNull JSONArray jsonArray) throws GeneralSecurityException, JSONException {
-        Signature signature = Signature.getInstance("SHA256withRSA");
-        signature.initVerify(getPublicKey());
-
-        int length = jsonArray.length();
-        Set<String> certificates = new HashSet<>(length);
-        for (int i = 0; i < length; i++) {
-            JSONObject jsonObject = jsonArray.optJSONObject(i);
-
-            String data = jsonObject.optString("data", null);
-            String sig = jsonObject.optString("signature", null);
+    private static Set<String> parseCertificates(@NonNull JsonReader reader) throws GeneralSecurityException, IOException {
+        Set<String> certificates = new HashSet<>();
+
+        reader.beginArray();
+        while (reader.hasNext()) {
+            String data = null;
+            String sig = null;
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "data":
+                        data = JsonUtil.nextString(reader);
+                        break;
+                    case "signature":
+                        sig = JsonUtil.nextString(reader);
+                        break;
+                    default:
+                        reader.skipValue();
+                        break;
+                }
+            }
+            reader.endObject();
 
             if (data == null || sig == null) continue;
 
             byte[] dataBytes = Base64.decode(data, Base64.DEFAULT);
             byte[] sigBytes = Base64.decode(sig, Base64.DEFAULT);
 
-            signature.update(dataBytes);
-            if (signature.verify(sigBytes)) {
-                JSONObject dataObject = new JSONObject(new String(dataBytes));
-                String algorithm = dataObject.optString("algorithm").replace("-", "");
-                String hash = dataObject.optString("spki_hash");
-                certificates.add(algorithm + '/' + hash);
+            if (VERIFIER.verify(dataBytes, sigBytes)) {
+                certificates.add(parseCertificate(dataBytes));
             }
         }
+        reader.endArray();
 
         return certificates;
     }
 
     /**
-     * Parse the public key
+     * Parse the signed certificate data to a pin
      */
-    private static PublicKey getPublicKey() throws GeneralSecurityException {
-        byte[] keyBytes = Base64.decode(PUBLIC_KEY, Base64.DEFAULT);
-        X509EncodedKeySpec spec = new X509EncodedKeySpec(keyBytes);
-        return KeyFactory.getInstance("RSA").generatePublic(spec);
+    private static String parseCertificate(byte[] dataBytes) throws IOException {
+        String algorithm = "";
+        String hash = "";
+
+        JsonReader reader = new JsonReader(new InputStreamReader(new ByteArrayInputStream(dataBytes), UTF_8));
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "algorithm":
+                    algorithm = JsonUtil.nextString(reader);
+                    break;
+                case "spki_hash":
+                    hash = JsonUtil.nextString(reader);
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+
+        return (algorithm == null ? "" : algorithm.replace("-", "")) + '/' + (hash == null ? "" : hash);
     }
 }
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2017 CM Telecom B.V.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.cmdisp.authenticator.sdk.api;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.cmdisp.authenticator.sdk.util.LatencyRecorder;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+
+import okhttp3.Call;
+import okhttp3.Dns;
+import okhttp3.EventListener;
+import okhttp3.Protocol;
+import okhttp3.Response;
+
+/**
+ * Measures the time to first byte of the calls, separately for calls which had to set up a new connection
+ * and calls which reused a pooled connection
+ */
+final class ConnectionMetrics implements EventListener.Factory {
+    private static final String TAG = ConnectionMetrics.class.getSimpleName();
+    private static final int LATENCY_SAMPLES = 128;
+
+    private final LatencyRecorder coldTimeToFirstByte = new LatencyRecorder(LATENCY_SAMPLES);
+    private final LatencyRecorder warmTimeToFirstByte = new LatencyRecorder(LATENCY_SAMPLES);
+    private final Dns dns;
+
+    /**
+     * @param dns the resolver of the client, told which addresses connected or failed when it's a
+     *            {@link CachingDns}
+     */
+    ConnectionMetrics(Dns dns) {
+        this.dns = dns;
+    }
+
+    @Override
+    public EventListener create(Call call) {
+        return new CallListener();
+    }
+
+    /**
+     * Get the time to first byte of calls which set up a new connection
+     */
+    LatencyRecorder getColdTimeToFirstByte() {
+        return coldTimeToFirstByte;
+    }
+
+    /**
+     * Get the time to first byte of calls which reused a pooled connection
+     */
+    LatencyRecorder getWarmTimeToFirstByte() {
+        return warmTimeToFirstByte;
+    }
+
+    private final class CallListener extends EventListener {
+        private long callStart;
+        private boolean connected;
+        private boolean recorded;
+
+        @Override
+        public void callStart(Call call) {
+            callStart = SystemClock.elapsedRealtime();
+        }
+
+        @Override
+        public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+            connected = true;
+        }
+
+        @Override
+        public void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol) {
+            if (dns instanceof CachingDns) {
+                ((CachingDns) dns).connected(inetSocketAddress.getAddress());
+            }
+        }
+
+        @Override
+        public void connectFailed(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol,
+                                  IOException ioe) {
+            if (dns instanceof CachingDns) {
+                ((CachingDns) dns).connectFailed(call.request().url().host());
+            }
+        }
+
+        @Override
+        public void responseHeadersEnd(Call call, Response response) {
+            // only the first response, follow-ups and retries reuse the connection
+            if (recorded) return;
+            recorded = true;
+
+            long timeToFirstByte = SystemClock.elapsedRealtime() - callStart;
+            (connected ? coldTimeToFirstByte : warmTimeToFirstByte).record(timeToFirstByte);
+            Log.v(TAG, (connected ? "New" : "Reused") + " connection, time to first byte " + timeToFirstByte
+                    + "ms " + call.request().url().encodedPath());
+        }
+    }
+}
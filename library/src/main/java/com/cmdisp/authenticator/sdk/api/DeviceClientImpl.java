@@ -26,16 +26,19 @@ import android.content.Context;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.annotation.RestrictTo;
+import android.util.JsonReader;
 
-import com.cmdisp.authenticator.sdk.api.callback.JsonObjectResponseCallback;
+import com.cmdisp.authenticator.sdk.api.RequestScheduler.Priority;
+import com.cmdisp.authenticator.sdk.api.callback.JsonResponseCallback;
+import com.cmdisp.authenticator.sdk.api.codec.DeviceRegistrationCodec;
+import com.cmdisp.authenticator.sdk.api.codec.RegistrationPayload;
+import com.cmdisp.authenticator.sdk.api.codec.RegistrationPayloadCodec;
 import com.cmdisp.authenticator.sdk.callback.Callback;
 import com.cmdisp.authenticator.sdk.managers.DeviceManager;
 import com.cmdisp.authenticator.sdk.models.DeviceInfo;
 import com.cmdisp.authenticator.sdk.models.DeviceRegistration;
-import com.cmdisp.authenticator.sdk.models.RegistrationStatus;
-import com.cmdisp.authenticator.sdk.util.JsonRequestBodyBuilder;
 
-import org.json.JSONObject;
+import java.io.IOException;
 
 import okhttp3.Request;
 import okhttp3.RequestBody;
@@ -46,6 +49,7 @@ public class DeviceClientImpl implements DeviceClient {
     private final String appKey;
     private final DeviceInfo deviceInfo;
     private final DeviceManager deviceManager;
+    private final SingleFlight<DeviceRegistration> registrationCalls = new SingleFlight<>();
 
     public DeviceClientImpl(RestClient restClient, Context context, String appKey, DeviceManager deviceManager) {
         this.restClient = restClient;
@@ -58,64 +62,60 @@ public class DeviceClientImpl implements DeviceClient {
 
     @Override
     public void getRegistration(@NonNull Callback<DeviceRegistration> callback) {
+        String url = restClient.getDeviceIdUrl();
         Request request = new Request.Builder()
-                .url(restClient.getDeviceIdUrl())
+                .url(url)
                 .build();
 
-        restClient.callAsync(request, new JsonObjectResponseCallback() {
+        // concurrent fetches share a single call
+        if (!registrationCalls.join(url, callback)) {
+            return;
+        }
 
+        restClient.callAsync(request, Priority.BACKGROUND, RetryPolicy.SAFE, new JsonResponseCallback<DeviceRegistration>() {
             @Override
-            protected void onResponse(int statusCode, JSONObject jsonObject) {
-                callback.onSuccess(parseRegistration(jsonObject));
+            protected DeviceRegistration parse(JsonReader reader) throws IOException {
+                return DeviceRegistrationCodec.read(reader);
+            }
+
+            @Override
+            protected void onResponse(int statusCode, DeviceRegistration registration) {
+                registrationCalls.onSuccess(url, registration);
             }
 
             @Override
             protected void onFailure(Exception e) {
-                callback.handleOnFailure(e);
+                registrationCalls.onFailure(url, e);
             }
         });
     }
 
     @Override
     public void registerPhoneNumber(@NonNull String phoneNumber, @Nullable Callback<DeviceRegistration> callback) {
-        updateRegistration(phoneNumber, null, null, null, callback);
+        updateRegistration(phoneNumber, null, null, null, Priority.INTERACTIVE, callback);
     }
 
     @Override
     public void verifyCode(@NonNull String verificationCode, @Nullable Callback<DeviceRegistration> callback) {
-        updateRegistration(null, verificationCode, null, null, callback);
+        updateRegistration(null, verificationCode, null, null, Priority.INTERACTIVE, callback);
     }
 
     @Override
     public void updateRegistrationToken(@NonNull String registrationToken, boolean pushEnabled, @Nullable Callback<DeviceRegistration> callback) {
-        updateRegistration(null, null, registrationToken, pushEnabled, callback);
+        updateRegistration(null, null, registrationToken, pushEnabled, Priority.BACKGROUND, callback);
     }
 
     @Override
     public void updateRegistration(@Nullable Callback<DeviceRegistration> callback) {
-        updateRegistration(null, null, null, null, callback);
+        updateRegistration(null, null, null, null, Priority.BACKGROUND, callback);
     }
 
     private void updateRegistration(@Nullable String phoneNumber, @Nullable String verificationCode,
                                     @Nullable String registrationToken, @Nullable Boolean pushEnabled,
-                                    @Nullable Callback<DeviceRegistration> callback) {
-
-        RequestBody body = new JsonRequestBodyBuilder()
-                .add("manufacturer", deviceInfo.getManufacturer())
-                .add("os_version", deviceInfo.getOSVersion())
-                .add("app_version", deviceInfo.getAppVersion())
-                .add("app_id", deviceInfo.getAppId())
-                .add("language_code", deviceInfo.getLanguage())
-                .add("model", deviceInfo.getModel())
-                .add("model_id", deviceInfo.getModelId())
-
-                .add("platform", deviceInfo.getOSName())
-                .add("push_token", registrationToken)
-                .add("push_enabled", pushEnabled)
-                .add("phone_number", phoneNumber)
-                .add("verification_code", verificationCode)
-                .add("app_key", appKey)
-                .build();
+                                    Priority priority, @Nullable Callback<DeviceRegistration> callback) {
+
+        RequestBody body = RegistrationPayloadCodec.write(new RegistrationPayload(deviceInfo, appKey, phoneNumber,
+                verificationCode, registrationToken, pushEnabled));
 
         boolean newDevice = restClient.getDeviceId() == null;
         Request.Builder request = new Request.Builder();
@@ -125,12 +125,19 @@ public class DeviceClientImpl implements DeviceClient {
             request.url(restClient.getDeviceIdUrl()).put(body);
         }
 
-        restClient.callAsync(request.build(), new JsonObjectResponseCallback() {
+        // creating the device twice results in two devices, submitting a phone number twice sends a second SMS
+        // and a verification code can only be used once, only updates of the registration itself are idempotent
+        boolean idempotent = !newDevice && phoneNumber == null && verificationCode == null;
+        RetryPolicy retryPolicy = idempotent ? RetryPolicy.IDEMPOTENT : RetryPolicy.UNSENT_ONLY;
 
+        restClient.callAsync(request.build(), priority, retryPolicy, new JsonResponseCallback<DeviceRegistration>() {
             @Override
-            protected void onResponse(int statusCode, JSONObject jsonObject) {
-                DeviceRegistration registration = parseRegistration(jsonObject);
+            protected DeviceRegistration parse(JsonReader reader) throws IOException {
+                return DeviceRegistrationCodec.read(reader);
+            }
 
+            @Override
+            protected void onResponse(int statusCode, DeviceRegistration registration) {
                 if (newDevice) {
                     String deviceId = registration.getId();
                     restClient.setDeviceId(deviceId);
@@ -150,14 +157,4 @@ public class DeviceClientImpl implements DeviceClient {
             }
         });
     }
-
-    private DeviceRegistration parseRegistration(JSONObject jsonObject) {
-        return new DeviceRegistration(
-                jsonObject.optString("id"),
-                jsonObject.optString("phone_number"),
-                RegistrationStatus.fromString(jsonObject.optString("registration_status")),
-                jsonObject.optString("push_token"),
-                jsonObject.optBoolean("push_enabled")
-        );
-    }
 }
@@ -26,9 +26,12 @@ import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
 import com.cmdisp.authenticator.sdk.callback.Callback;
+import com.cmdisp.authenticator.sdk.callback.ExpiryListener;
 import com.cmdisp.authenticator.sdk.models.AuthenticationRequest;
 import com.cmdisp.authenticator.sdk.models.Environment;
+import com.cmdisp.authenticator.sdk.models.PendingAuthenticationRequests;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface EnvironmentClient {
@@ -76,4 +79,46 @@ public interface EnvironmentClient {
      * @param secret environment secret
      */
     void getAuthenticationRequest(@NonNull String id, @NonNull String secret, @NonNull Callback<AuthenticationRequest> callback);
+
+    /**
+     * Get current authentication requests for multiple environments at once
+     * <p>
+     * The environments are retrieved in parallel. The callback is called once all of them have been retrieved,
+     * with the requests sorted by expiry and the failures per environment.
+     *
+     * @param envs environments to get authentication requests for
+     */
+    void getAuthenticationRequests(@NonNull Collection<? extends Environment> envs,
+                                   @NonNull Callback<PendingAuthenticationRequests> callback);
+
+    /**
+     * Fetch the current authentication request (if any) for a specific environment in the background, e.g. when
+     * a push message arrives, so it's available using {@link #getCachedAuthenticationRequest(String)}
+     *
+     * @param id     environment id
+     * @param secret environment secret
+     */
+    void prefetchAuthenticationRequest(@NonNull String id, @NonNull String secret);
+
+    /**
+     * Get the last retrieved authentication request for a specific environment, without calling the API
+     * <p>
+     * Requests are cached until they expire, use {@link #getAuthenticationRequest(String, String, Callback)}
+     * to revalidate it.
+     *
+     * @param id environment id
+     * @return the authentication request or {@code null} when there is none or it expired
+     */
+    @Nullable
+    AuthenticationRequest getCachedAuthenticationRequest(@NonNull String id);
+
+    /**
+     * Add a listener which is notified when a retrieved authentication request expires
+     */
+    void addExpiryListener(@NonNull ExpiryListener listener);
+
+    /**
+     * Remove a listener added using {@link #addExpiryListener(ExpiryListener)}
+     */
+    void removeExpiryListener(@NonNull ExpiryListener listener);
 }
@@ -25,32 +25,35 @@ package com.cmdisp.authenticator.sdk.api;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.annotation.RestrictTo;
+import android.util.JsonReader;
+import android.util.JsonToken;
 import android.util.Log;
 
+import com.cmdisp.authenticator.sdk.api.RequestScheduler.Priority;
 import com.cmdisp.authenticator.sdk.api.callback.BaseCallback;
-import com.cmdisp.authenticator.sdk.api.callback.JsonArrayResponseCallback;
+import com.cmdisp.authenticator.sdk.api.callback.JsonResponseCallback;
 import com.cmdisp.authenticator.sdk.api.callback.SuccessCallback;
+import com.cmdisp.authenticator.sdk.api.codec.AuthenticationRequestCodec;
+import com.cmdisp.authenticator.sdk.api.codec.DefaultEnvironmentCodec;
 import com.cmdisp.authenticator.sdk.callback.Callback;
+import com.cmdisp.authenticator.sdk.callback.ExpiryListener;
 import com.cmdisp.authenticator.sdk.exceptions.EnvironmentInvalidException;
 import com.cmdisp.authenticator.sdk.exceptions.HttpException;
+import com.cmdisp.authenticator.sdk.managers.AuthenticationRequestCache;
 import com.cmdisp.authenticator.sdk.models.AuthenticationRequest;
-import com.cmdisp.authenticator.sdk.models.DefaultEnvironment;
 import com.cmdisp.authenticator.sdk.models.Environment;
-import com.cmdisp.authenticator.sdk.models.Location;
-import com.cmdisp.authenticator.sdk.models.Type;
-import com.cmdisp.authenticator.sdk.util.JsonUtil;
-
-import org.json.JSONArray;
-import org.json.JSONObject;
+import com.cmdisp.authenticator.sdk.models.PendingAuthenticationRequests;
+import com.cmdisp.authenticator.sdk.util.SecurityUtil;
 
 import java.io.IOException;
-import java.text.DateFormat;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
 
 import okhttp3.Request;
 import okhttp3.Response;
@@ -60,11 +63,50 @@ import static java.net.HttpURLConnection.HTTP_UNAUTHORIZED;
 @RestrictTo(RestrictTo.Scope.LIBRARY)
 public class EnvironmentClientImpl implements EnvironmentClient {
     private static final String TAG = EnvironmentClientImpl.class.getSimpleName();
-    private static final DateFormat DATE_FORMAT_ISO_8601 = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssZ", Locale.ENGLISH);
+    /** Maximum number of authentication request calls in flight for a bulk fetch */
+    private static final int MAX_PARALLEL_FETCHES = 4;
+
     private final RestClient restClient;
+    private final AuthenticationRequestCache authRequestCache;
+    private final SingleFlight<AuthenticationRequest> authRequestCalls = new SingleFlight<>();
 
-    public EnvironmentClientImpl(RestClient restClient) {
+    public EnvironmentClientImpl(RestClient restClient, AuthenticationRequestCache authRequestCache) {
         this.restClient = restClient;
+        this.authRequestCache = authRequestCache;
+    }
+
+    /**
+     * Read the list of authentication requests, containing 1 request at max
+     *
+     * @param envId       id of the environment the requests were retrieved for
+     * @param clockOffset offset of the server clock relative to the device clock in milliseconds
+     * @return the authentication request or {@code null} if there is none
+     */
+    private static AuthenticationRequest readAuthenticationRequest(JsonReader reader, String envId, long clockOffset)
+            throws IOException {
+        AuthenticationRequest authentication = null;
+
+        reader.beginArray();
+        if (reader.hasNext()) {
+            if (reader.peek() == JsonToken.BEGIN_OBJECT) {
+                AuthenticationRequest.Builder builder = new AuthenticationRequest.Builder()
+                        .setEnvironmentId(envId)
+                        .setExpiry(60)
+                        .setClockOffset(clockOffset);
+                authentication = AuthenticationRequestCodec.read(reader, builder);
+            } else {
+                reader.skipValue();
+            }
+        }
+        if (reader.hasNext()) {
+            Log.wtf(TAG, "There should 1 request at max");
+            while (reader.hasNext()) {
+                reader.skipValue();
+            }
+        }
+        reader.endArray();
+
+        return authentication;
     }
 
     private String getBaseUrl() {
@@ -77,27 +119,18 @@ public class EnvironmentClientImpl implements EnvironmentClient {
                 .url(getBaseUrl())
                 .build();
 
-        restClient.callAsync(request, new JsonArrayResponseCallback() {
+        restClient.callAsync(request, Priority.INTERACTIVE, RetryPolicy.SAFE, new JsonResponseCallback<List<Environment>>() {
             @Override
-            protected void onResponse(int statusCode, JSONArray jsonArray) {
-                int length = jsonArray.length();
-                List<Environment> environments = new ArrayList<>(length);
-                for (int i = 0; i < length; i++) {
-                    JSONObject jsonObject = jsonArray.optJSONObject(i);
-                    if (jsonObject == null) {
-                        Log.wtf(TAG, "JsonObject shouldn't be null");
-                        continue;
-                    }
-
-                    Environment env = new DefaultEnvironment(
-                            jsonObject.optString("id"),
-                            jsonObject.optString("name"),
-                            null,
-                            jsonObject.optString("icon_url")
-                    );
-                    environments.add(env);
-                }
+            protected List<Environment> parse(JsonReader reader) throws IOException {
+                List<Environment> environments = new ArrayList<>();
+                DefaultEnvironmentCodec.readList(reader, environments);
+                return environments;
+            }
 
+            @Override
+            protected void onResponse(int statusCode, List<Environment> environments) {
+                // the secret of every environment signs its requests, keep all their keys ready
+                SecurityUtil.ensureHmacCapacity(environments.size());
                 callback.handleOnSuccess(environments);
             }
 
@@ -113,10 +146,10 @@ public class EnvironmentClientImpl implements EnvironmentClient {
         Request request = new Request.Builder()
                 .url(getBaseUrl() + "/" + id)
                 .put(RestClient.EMPTY_BODY)
-                .header(HeaderInterceptor.AUTHORIZATION_SECRET, secret)
+                .tag(new SigningInfo(secret))
                 .build();
 
-        restClient.callAsync(request, new BaseCallback() {
+        restClient.callAsync(request, Priority.INTERACTIVE, RetryPolicy.IDEMPOTENT, new BaseCallback() {
 
             @Override
             protected void onResponse(Response response) throws IOException {
@@ -150,10 +183,10 @@ public class EnvironmentClientImpl implements EnvironmentClient {
         Request request = new Request.Builder()
                 .url(getBaseUrl() + "/" + id)
                 .delete()
-                .header(HeaderInterceptor.AUTHORIZATION_SECRET, secret)
+                .tag(new SigningInfo(secret))
                 .build();
 
-        restClient.callAsync(request, new SuccessCallback() {
+        restClient.callAsync(request, Priority.INTERACTIVE, RetryPolicy.IDEMPOTENT, new SuccessCallback() {
             @Override
             public void onSuccess(int statusCode) {
                 if (callback != null) {
@@ -180,62 +213,154 @@ public class EnvironmentClientImpl implements EnvironmentClient {
         Request request = new Request.Builder()
                 .url(getBaseUrl() + "/" + id + "/auth")
                 .get()
-                .header(HeaderInterceptor.AUTHORIZATION_SECRET, secret)
+                .tag(new SigningInfo(secret))
                 .build();
 
-        restClient.callAsync(request, new JsonArrayResponseCallback() {
-            @Override
-            protected void onResponse(int statusCode, JSONArray jsonArray) {
-                if (jsonArray.length() > 1) {
-                    Log.wtf(TAG, "There should 1 request at max");
-                }
+        // concurrent fetches for the same environment share a single call
+        String key = id + '\n' + secret;
+        if (!authRequestCalls.join(key, callback)) {
+            return;
+        }
 
-                JSONObject jsonObject = jsonArray.optJSONObject(0);
-                if (jsonObject == null) {
-                    callback.handleOnSuccess(null);
-                    return;
-                }
+        restClient.callAsync(request, Priority.INTERACTIVE, RetryPolicy.SAFE, new JsonResponseCallback<AuthenticationRequest>() {
+            @Override
+            protected AuthenticationRequest parse(JsonReader reader) throws IOException {
+                return readAuthenticationRequest(reader, id, restClient.getServerClock().getOffset());
+            }
 
-                Date created = null;
-                String dateStr = jsonObject.optString("created_at");
-                if (dateStr != null) {
-                    try {
-                        created = DATE_FORMAT_ISO_8601.parse(dateStr);
-                    } catch (ParseException e) {
-                        Log.e(TAG, "Could not parse date: " + dateStr, e);
-                    }
-                }
+            @Override
+            protected void onResponse(int statusCode, AuthenticationRequest authentication) {
+                authRequestCache.put(id, authentication);
+                authRequestCalls.onSuccess(key, authentication);
+            }
 
-                JSONObject jsonLocation = jsonObject.optJSONObject("geoip");
-                Location location = null;
-                if (jsonLocation != null) {
-                    location = new Location.Builder()
-                            .setCountryCode(JsonUtil.optString(jsonLocation, "country_code"))
-                            .setRegion(JsonUtil.optString(jsonLocation, "region"))
-                            .setCity(JsonUtil.optString(jsonLocation, "city"))
-                            .setLatitude(JsonUtil.optDouble(jsonLocation, "latitude"))
-                            .setLongitude(JsonUtil.optDouble(jsonLocation, "longitude"))
-                            .build();
-                }
+            @Override
+            protected void onFailure(Exception e) {
+                authRequestCalls.onFailure(key, e);
+            }
+        });
+    }
 
-                AuthenticationRequest authentication = new AuthenticationRequest.Builder()
-                        .setId(JsonUtil.optString(jsonObject, "id"))
-                        .setEnvironmentId(id)
-                        .setType(Type.fromString(jsonObject.optString("auth_type")))
-                        .setPin(JsonUtil.optString(jsonObject, "pin"))
-                        .setIp(JsonUtil.optString(jsonObject, "ip"))
-                        .setLocation(location)
-                        .setExpiry(jsonObject.optInt("expiry", 60))
-                        .setCreated(created)
-                        .build();
+    @Override
+    public void getAuthenticationRequests(@NonNull Collection<? extends Environment> envs,
+                                          @NonNull Callback<PendingAuthenticationRequests> callback) {
+        new BulkFetch(envs, callback).start();
+    }
 
-                callback.handleOnSuccess(authentication);
+    @Override
+    public void prefetchAuthenticationRequest(@NonNull String id, @NonNull String secret) {
+        getAuthenticationRequest(id, secret, new Callback<AuthenticationRequest>() {
+            @Override
+            public void onSuccess(AuthenticationRequest authentication) {
+                // cached by getAuthenticationRequest
             }
 
             @Override
-            protected void onFailure(Exception e) {
-                callback.handleOnFailure(e);
+            public void onFailure(Exception e) {
+                Log.w(TAG, "Could not prefetch authentication request", e);
             }
         });
     }
+
+    @Override
+    public AuthenticationRequest getCachedAuthenticationRequest(@NonNull String id) {
+        return authRequestCache.get(id);
+    }
+
+    @Override
+    public void addExpiryListener(@NonNull ExpiryListener listener) {
+        authRequestCache.addExpiryListener(listener);
+    }
+
+    @Override
+    public void removeExpiryListener(@NonNull ExpiryListener listener) {
+        authRequestCache.removeExpiryListener(listener);
+    }
+
+    /**
+     * Fetches the authentication requests of multiple environments, with a limited number of calls in flight
+     */
+    private final class BulkFetch {
+        private final Queue<Environment> queue;
+        private final Callback<PendingAuthenticationRequests> callback;
+        private final List<AuthenticationRequest> requests = new ArrayList<>();
+        private final Map<String, Exception> failures = new HashMap<>();
+        private int remaining;
+
+        private BulkFetch(Collection<? extends Environment> envs, Callback<PendingAuthenticationRequests> callback) {
+            this.queue = new ArrayDeque<>(envs);
+            this.callback = callback;
+            this.remaining = envs.size();
+        }
+
+        private void start() {
+            if (queue.isEmpty()) {
+                finish();
+                return;
+            }
+
+            for (int i = 0; i < MAX_PARALLEL_FETCHES; i++) {
+                fetchNext();
+            }
+        }
+
+        private void fetchNext() {
+            Environment env;
+            synchronized (this) {
+                env = queue.poll();
+            }
+            if (env == null) {
+                return;
+            }
+
+            String secret = env.getSecret();
+            if (secret == null) {
+                onResult(env.getId(), null, new IllegalArgumentException("environment secret may not be null"));
+                return;
+            }
+
+            getAuthenticationRequest(env.getId(), secret, new Callback<AuthenticationRequest>() {
+                @Override
+                public void onSuccess(AuthenticationRequest authentication) {
+                    onResult(env.getId(), authentication, null);
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    onResult(env.getId(), null, e);
+                }
+            });
+        }
+
+        private void onResult(String envId, AuthenticationRequest authentication, Exception e) {
+            boolean done;
+            synchronized (this) {
+                if (authentication != null) {
+                    requests.add(authentication);
+                } else if (e != null) {
+                    failures.put(envId, e);
+                }
+                done = --remaining == 0;
+            }
+
+            if (done) {
+                finish();
+            } else {
+                fetchNext();
+            }
+        }
+
+        private void finish() {
+            Collections.sort(requests, (a, b) -> {
+                long expiredA = getExpiredTime(a);
+                long expiredB = getExpiredTime(b);
+                return expiredA < expiredB ? -1 : (expiredA == expiredB ? 0 : 1);
+            });
+            callback.handleOnSuccess(new PendingAuthenticationRequests(requests, failures));
+        }
+    }
+
+    private static long getExpiredTime(AuthenticationRequest authentication) {
+        return authentication.getCreated() == null ? Long.MAX_VALUE : authentication.getExpired().getTime();
+    }
 }
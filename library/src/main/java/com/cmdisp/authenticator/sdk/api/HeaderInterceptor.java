@@ -24,39 +24,39 @@ package com.cmdisp.authenticator.sdk.api;
 
 import android.os.Build;
 import android.support.annotation.RestrictTo;
-import android.util.Log;
 
+import com.cmdisp.authenticator.sdk.util.JwtEncoder;
+import com.cmdisp.authenticator.sdk.util.MacSink;
 import com.cmdisp.authenticator.sdk.util.SecurityUtil;
 
-import org.json.JSONException;
-import org.json.JSONObject;
-
 import java.io.IOException;
+import java.security.GeneralSecurityException;
 import java.util.Locale;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 import okhttp3.Interceptor;
+import okhttp3.MediaType;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
 import okio.Buffer;
+import okio.BufferedSink;
+import okio.Okio;
 
 /**
  * Intercepts every request and adds the Authorization and User-Agent header
  */
 @RestrictTo(RestrictTo.Scope.LIBRARY)
 public class HeaderInterceptor implements Interceptor {
-    static final String AUTHORIZATION_SECRET = "Authorization-Secret";
-    static final String AUTHORIZATION_PAYLOAD = "Authorization-Payload";
-
-    private static final String TAG = HeaderInterceptor.class.getSimpleName();
     private static final String HEADER_AUTHORIZATION = "Authorization";
     private static final String HEADER_USER_AGENT = "User-Agent";
     private static final int EXPIRY_TIME = 60;
 
     private final String userAgent;
+    private final ServerClock serverClock;
 
-    HeaderInterceptor(String appName, String appVersion) {
+    HeaderInterceptor(String appName, String appVersion, ServerClock serverClock) {
         String androidVersion = Build.VERSION.RELEASE;
         String manufacturer = Build.MANUFACTURER;
         String deviceModel = Build.MODEL;
@@ -64,6 +64,7 @@ public class HeaderInterceptor implements Interceptor {
 
         userAgent = String.format("%s/%s (Android %s; %s; %s; %s)", appName,
                 appVersion, androidVersion, manufacturer, deviceModel, locale);
+        this.serverClock = serverClock;
     }
 
     @Override
@@ -72,58 +73,96 @@ public class HeaderInterceptor implements Interceptor {
         Request.Builder builder = request.newBuilder()
                 .addHeader(HEADER_USER_AGENT, userAgent);
 
-        String secret = request.header(AUTHORIZATION_SECRET);
-        if (secret != null) {
-            String payload = request.header(AUTHORIZATION_PAYLOAD);
-            String sig = createSignature(secret, payload, request.body());
+        Object tag = request.tag();
+        if (tag instanceof SigningInfo) {
+            SigningInfo signingInfo = (SigningInfo) tag;
+            String secret = signingInfo.getSecret();
+            RequestBody body = request.body();
+            byte[] bodySig = null;
+
+            if (body != null && body.contentLength() > 0) {
+                // serialize the body once: sign it while writing and send the written bytes
+                SerializedBody serializedBody = new SerializedBody(body.contentType());
+                bodySig = serializedBody.writeAndSign(body, secret);
+                builder.method(request.method(), serializedBody);
+            }
 
-            builder.removeHeader(AUTHORIZATION_SECRET);
-            builder.removeHeader(AUTHORIZATION_PAYLOAD);
+            String sig = createSignature(secret, signingInfo.getClaims(), bodySig);
             builder.header(HEADER_AUTHORIZATION, "Bearer " + sig);
         }
 
         return chain.proceed(builder.build());
     }
 
-    private static String createSignature(String secret, String payload, RequestBody body) throws IOException {
-        long now = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+    private String createSignature(String secret, Map<String, Object> claims, byte[] bodySig) throws IOException {
+        // use server time, so the token is valid even when the device clock is off
+        long now = TimeUnit.MILLISECONDS.toSeconds(serverClock.currentTimeMillis());
 
         try {
-            JSONObject jsonHeader = new JSONObject()
-                    .put("alg", "HS256");
-
-            JSONObject jsonPayload = (payload == null ? new JSONObject() : new JSONObject(payload))
-                    .put("iat", now)
-                    .put("nbf", now)
-                    .put("exp", now + EXPIRY_TIME);
+            JwtEncoder jwt = JwtEncoder.begin();
+            for (Map.Entry<String, Object> claim : claims.entrySet()) {
+                jwt.claim(claim.getKey(), claim.getValue());
+            }
 
-            if (body != null && body.contentLength() > 0) {
-                Buffer bodyBuffer = new Buffer();
-                body.writeTo(bodyBuffer);
-                byte[] bodyBytes = bodyBuffer.readByteArray();
+            jwt.claim("iat", now)
+                    .claim("nbf", now)
+                    .claim("exp", now + EXPIRY_TIME);
 
-                byte[] bodySig = SecurityUtil.hmacSHA256(bodyBytes, secret);
-                jsonPayload.put("sig", bytesToHex(bodySig));
+            if (bodySig != null) {
+                jwt.claimHex("sig", bodySig);
             }
 
-            return SecurityUtil.createJWT(jsonHeader, jsonPayload, secret);
-        } catch (JSONException e) {
-            Log.wtf(TAG, "Error creating JSON object for JWT", e);
-            return null;
+            return jwt.sign(secret);
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Could not sign the request", e);
         }
     }
 
-    private static final char[] HEX_ARRAY = {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f'};
+    /**
+     * Request body replaying the bytes written by another body
+     */
+    private static final class SerializedBody extends RequestBody {
+        private final MediaType contentType;
+        private final Buffer buffer = new Buffer();
 
-    private static String bytesToHex(byte[] data) {
-        int length = data.length;
-        char[] hexChars = new char[length << 1];
+        private SerializedBody(MediaType contentType) {
+            this.contentType = contentType;
+        }
+
+        /**
+         * Write the body into this one while computing its signature
+         *
+         * @return HMAC-SHA256 signature of the body
+         */
+        private byte[] writeAndSign(RequestBody body, String secret) throws IOException {
+            MacSink macSink;
+            try {
+                macSink = SecurityUtil.hmacSHA256(buffer, secret);
+            } catch (GeneralSecurityException e) {
+                throw new IOException("Could not sign the request body", e);
+            }
+
+            BufferedSink sink = Okio.buffer(macSink);
+            body.writeTo(sink);
+            sink.flush();
+            return macSink.doFinal();
+        }
+
+        @Override
+        public MediaType contentType() {
+            return contentType;
+        }
+
+        @Override
+        public long contentLength() {
+            return buffer.size();
+        }
 
-        // two characters form the hex value
-        for (int i = 0, j = 0; i < length; i++) {
-            hexChars[j++] = HEX_ARRAY[(0xF0 & data[i]) >>> 4];
-            hexChars[j++] = HEX_ARRAY[0x0F & data[i]];
+        @Override
+        public void writeTo(BufferedSink sink) throws IOException {
+            // shares the segments instead of copying the bytes
+            buffer.copyTo(sink.buffer(), 0, buffer.size());
+            sink.emitCompleteSegments();
         }
-        return new String(hexChars);
     }
 }
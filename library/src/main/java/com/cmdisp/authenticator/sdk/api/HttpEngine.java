@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2017 CM Telecom B.V.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.cmdisp.authenticator.sdk.api;
+
+import android.content.Context;
+import android.support.annotation.RestrictTo;
+import android.util.Log;
+
+import java.io.File;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.Arrays;
+import java.util.Collections;
+
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.TrustManagerFactory;
+import javax.net.ssl.X509TrustManager;
+
+import okhttp3.ConnectionPool;
+import okhttp3.ConnectionSpec;
+import okhttp3.Dispatcher;
+import okhttp3.Dns;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+
+/**
+ * Creates the HTTP engine shared by all API clients.
+ * <p>
+ * Clients derive from it using {@link OkHttpClient#newBuilder()}, so they share a single
+ * connection pool and dispatcher and can multiplex their calls over one HTTP/2 connection.
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY)
+public class HttpEngine {
+    private static final String TAG = HttpEngine.class.getSimpleName();
+    private static final String SESSION_CACHE_DIR = "authenticator_tls_sessions";
+
+    private static X509TrustManager defaultTrustManager;
+
+    private HttpEngine() {
+    }
+
+    /**
+     * Create the shared {@link OkHttpClient}
+     *
+     * @param apiUrl the base API url, the addresses of its host are cached
+     */
+    public static OkHttpClient create(Context context, String apiUrl) {
+        HttpUrl url = HttpUrl.parse(apiUrl);
+        if (url == null) {
+            throw new IllegalArgumentException("Invalid API url: " + apiUrl);
+        }
+
+        OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool())
+                .dispatcher(new Dispatcher())
+                .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .connectionSpecs(Collections.singletonList(ConnectionSpec.MODERN_TLS))
+                .dns(new CachingDns(context, Dns.SYSTEM, Collections.singleton(url.host())));
+
+        try {
+            X509TrustManager trustManager = getDefaultTrustManager();
+            // the cache directory is excluded from backups, sessions should never move to another device
+            File dir = new File(context.getCacheDir(), SESSION_CACHE_DIR);
+            builder.sslSocketFactory(new SessionCachingSocketFactory(dir, trustManager), trustManager);
+        } catch (GeneralSecurityException e) {
+            Log.e(TAG, "Could not set up the TLS session cache, sessions won't be resumed after a restart", e);
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * Get the trust manager of the platform, loading the system key store only once
+     */
+    static synchronized X509TrustManager getDefaultTrustManager() throws GeneralSecurityException {
+        if (defaultTrustManager == null) {
+            defaultTrustManager = loadDefaultTrustManager();
+        }
+        return defaultTrustManager;
+    }
+
+    private static X509TrustManager loadDefaultTrustManager() throws GeneralSecurityException {
+        TrustManagerFactory factory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        factory.init((KeyStore) null);
+        for (TrustManager trustManager : factory.getTrustManagers()) {
+            if (trustManager instanceof X509TrustManager) {
+                return (X509TrustManager) trustManager;
+            }
+        }
+        throw new GeneralSecurityException("No X509TrustManager available");
+    }
+}
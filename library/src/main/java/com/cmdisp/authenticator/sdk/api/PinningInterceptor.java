@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2017 CM Telecom B.V.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.cmdisp.authenticator.sdk.api;
+
+import android.support.annotation.RestrictTo;
+
+import com.cmdisp.authenticator.sdk.managers.CertificateManager;
+
+import java.io.IOException;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.util.List;
+import java.util.Set;
+
+import javax.net.ssl.SSLPeerUnverifiedException;
+
+import okhttp3.Connection;
+import okhttp3.Handshake;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.internal.tls.CertificateChainCleaner;
+import okio.ByteString;
+
+/**
+ * Network interceptor which pins the certificates of the API host.
+ * <p>
+ * In contrast to {@link okhttp3.CertificatePinner} the pins are read from the
+ * {@link CertificateManager} on every check, so they can be replaced at any time without rebuilding
+ * the client or losing the pooled connections.
+ * <p>
+ * Like {@link okhttp3.CertificatePinner}, the chain sent by the server is first cleaned to the path
+ * from the server certificate to a trusted root. A pin on a root which the server doesn't send still
+ * matches, and a pin can't be satisfied by appending an unrelated certificate to the chain.
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY)
+class PinningInterceptor implements Interceptor {
+    private final String host;
+    private final CertificateManager certManager;
+    private final CertificateChainCleaner chainCleaner;
+
+    /** Last handshake that passed the check, together with the pins it was checked against */
+    private volatile Verified lastVerified;
+
+    /**
+     * @param chainCleaner cleaner built from the trust manager of the client, see
+     *                     {@link CertificateChainCleaner#get(javax.net.ssl.X509TrustManager)}
+     */
+    PinningInterceptor(String host, CertificateManager certManager, CertificateChainCleaner chainCleaner) {
+        this.host = host;
+        this.certManager = certManager;
+        this.chainCleaner = chainCleaner;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        if (host.equals(request.url().host())) {
+            Connection connection = chain.connection();
+            Handshake handshake = connection != null ? connection.handshake() : null;
+            if (handshake == null) {
+                throw new SSLPeerUnverifiedException("Certificate pinning failure, no TLS handshake for " + host);
+            }
+            check(handshake);
+        }
+        return chain.proceed(request);
+    }
+
+    private void check(Handshake handshake) throws SSLPeerUnverifiedException {
+        Set<String> pins = certManager.getCertificates();
+        Verified verified = lastVerified;
+        if (verified != null && verified.handshake == handshake && verified.pins == pins) {
+            // connection is reused and the pins did not change in the meantime
+            return;
+        }
+
+        List<Certificate> path = chainCleaner.clean(handshake.peerCertificates(), host);
+        for (Certificate certificate : path) {
+            X509Certificate cert = (X509Certificate) certificate;
+            ByteString publicKey = ByteString.of(cert.getPublicKey().getEncoded());
+            if (pins.contains("sha256/" + publicKey.sha256().base64())
+                    || pins.contains("sha1/" + publicKey.sha1().base64())) {
+                lastVerified = new Verified(handshake, pins);
+                return;
+            }
+        }
+
+        StringBuilder message = new StringBuilder("Certificate pinning failure!")
+                .append("\n  Peer certificate chain:");
+        for (Certificate certificate : path) {
+            X509Certificate cert = (X509Certificate) certificate;
+            message.append("\n    sha256/")
+                    .append(ByteString.of(cert.getPublicKey().getEncoded()).sha256().base64())
+                    .append(": ").append(cert.getSubjectX500Principal().getName());
+        }
+        message.append("\n  Pinned certificates for ").append(host).append(":");
+        for (String pin : pins) {
+            message.append("\n    ").append(pin);
+        }
+        throw new PinningFailureException(message.toString(), pins);
+    }
+
+    /**
+     * None of the pins matched the certificate chain of the server
+     */
+    static final class PinningFailureException extends SSLPeerUnverifiedException {
+        private final Set<String> pins;
+
+        private PinningFailureException(String message, Set<String> pins) {
+            super(message);
+            this.pins = pins;
+        }
+
+        /**
+         * Get the pins the certificate chain was checked against
+         */
+        Set<String> getPins() {
+            return pins;
+        }
+    }
+
+    private static final class Verified {
+        private final Handshake handshake;
+        private final Set<String> pins;
+
+        private Verified(Handshake handshake, Set<String> pins) {
+            this.handshake = handshake;
+            this.pins = pins;
+        }
+    }
+}
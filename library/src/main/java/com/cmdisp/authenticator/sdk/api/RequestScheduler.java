@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2017 CM Telecom B.V.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.cmdisp.authenticator.sdk.api;
+
+import android.os.SystemClock;
+
+import com.cmdisp.authenticator.sdk.util.LatencyRecorder;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Queue;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Schedules calls by priority in front of the dispatcher of the client
+ * <p>
+ * Calls are started in order of their priority, FIFO within a priority. The lower priorities can't use the
+ * capacity reserved for {@link Priority#CRITICAL critical} calls, so those never queue behind other traffic.
+ */
+final class RequestScheduler {
+    /** Maximum number of calls in flight, matches the per host limit of the dispatcher */
+    private static final int MAX_IN_FLIGHT = 5;
+    /** Number of calls in flight which are reserved for critical calls */
+    private static final int RESERVED_CRITICAL = 1;
+    private static final int LATENCY_SAMPLES = 128;
+
+    enum Priority {
+        /** User actions which are waited for, e.g. approving an authentication request */
+        CRITICAL,
+        /** Reads the user is waiting for, e.g. getting the authentication request */
+        INTERACTIVE,
+        /** Maintenance, e.g. updating the device registration */
+        BACKGROUND
+    }
+
+    private final OkHttpClient client;
+    private final Map<Priority, Queue<ScheduledCall>> queues = new EnumMap<>(Priority.class);
+    private final Map<Priority, LatencyRecorder> queueDelays = new EnumMap<>(Priority.class);
+    private int inFlight;
+
+    RequestScheduler(OkHttpClient client) {
+        this.client = client;
+
+        for (Priority priority : Priority.values()) {
+            queues.put(priority, new ArrayDeque<>());
+            queueDelays.put(priority, new LatencyRecorder(LATENCY_SAMPLES));
+        }
+    }
+
+    /**
+     * Enqueue the call, it's started when capacity for its priority is available
+     */
+    void enqueue(Request request, Priority priority, Callback callback) {
+        enqueue(client, request, priority, callback);
+    }
+
+    /**
+     * Enqueue a call of another client which shares the dispatcher, e.g. one without the interceptors
+     */
+    void enqueue(Call.Factory callFactory, Request request, Priority priority, Callback callback) {
+        synchronized (this) {
+            queues.get(priority).add(new ScheduledCall(callFactory, request, priority, callback));
+        }
+        promote();
+    }
+
+    /**
+     * Get the time calls of the priority spent queued before being started
+     */
+    LatencyRecorder getQueueDelays(Priority priority) {
+        return queueDelays.get(priority);
+    }
+
+    /**
+     * Start queued calls, highest priority first, while there is capacity
+     */
+    private void promote() {
+        while (true) {
+            ScheduledCall call;
+            synchronized (this) {
+                call = next();
+                if (call == null) {
+                    return;
+                }
+                inFlight++;
+            }
+
+            long delay = SystemClock.elapsedRealtime() - call.enqueuedAt;
+            queueDelays.get(call.priority).record(delay);
+            call.callFactory.newCall(call.request).enqueue(call);
+        }
+    }
+
+    private ScheduledCall next() {
+        for (Priority priority : Priority.values()) {
+            int limit = priority == Priority.CRITICAL ? MAX_IN_FLIGHT : MAX_IN_FLIGHT - RESERVED_CRITICAL;
+            if (inFlight >= limit) {
+                continue;
+            }
+
+            ScheduledCall call = queues.get(priority).poll();
+            if (call != null) {
+                return call;
+            }
+        }
+        return null;
+    }
+
+    private void finished() {
+        synchronized (this) {
+            inFlight--;
+        }
+        promote();
+    }
+
+    /**
+     * Queued call, releases its capacity once the callback has handled the response
+     */
+    private final class ScheduledCall implements Callback {
+        private final Call.Factory callFactory;
+        private final Request request;
+        private final Priority priority;
+        private final Callback callback;
+        private final long enqueuedAt = SystemClock.elapsedRealtime();
+
+        private ScheduledCall(Call.Factory callFactory, Request request, Priority priority, Callback callback) {
+            this.callFactory = callFactory;
+            this.request = request;
+            this.priority = priority;
+            this.callback = callback;
+        }
+
+        @Override
+        public void onFailure(Call call, IOException e) {
+            try {
+                callback.onFailure(call, e);
+            } finally {
+                finished();
+            }
+        }
+
+        @Override
+        public void onResponse(Call call, Response response) throws IOException {
+            try {
+                callback.onResponse(call, response);
+            } finally {
+                finished();
+            }
+        }
+    }
+}
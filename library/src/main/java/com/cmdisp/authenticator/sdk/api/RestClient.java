@@ -22,41 +22,66 @@
 
 package com.cmdisp.authenticator.sdk.api;
 
+import android.os.SystemClock;
 import android.support.annotation.RestrictTo;
+import android.text.format.DateUtils;
 import android.util.Log;
 
 import com.cmdisp.authenticator.sdk.BuildConfig;
 import com.cmdisp.authenticator.sdk.managers.CertificateManager;
+import com.cmdisp.authenticator.sdk.models.NetworkMetrics;
+import com.cmdisp.authenticator.sdk.util.LatencyRecorder;
 
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.util.Collections;
+import java.security.GeneralSecurityException;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
+import okhttp3.Call;
 import okhttp3.Callback;
-import okhttp3.CertificatePinner;
-import okhttp3.ConnectionSpec;
+import okhttp3.Interceptor;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
+import okhttp3.internal.tls.CertificateChainCleaner;
 import okhttp3.logging.HttpLoggingInterceptor;
 
 @RestrictTo(RestrictTo.Scope.LIBRARY)
-public class RestClient implements CertificateManager.CertificatesUpdatedListener {
+public class RestClient {
+    private static final String TAG = RestClient.class.getSimpleName();
     /** PUT and POST requests require a body, if you don't need one, use this empty body */
     static final RequestBody EMPTY_BODY = RequestBody.create(null, new byte[0]);
+    /** Minimum time between two warm-ups, a push message triggers one every time */
+    private static final long WARM_UP_INTERVAL = 30 * DateUtils.SECOND_IN_MILLIS;
 
-    private OkHttpClient client;
+    private final OkHttpClient client;
+    private final RequestScheduler scheduler;
+    private final Retrier retrier;
     private final String apiUrl;
     private final CertificateManager certManager;
+    private final ServerClock serverClock = new ServerClock();
+    private final ConnectionMetrics connectionMetrics;
+    /** Time of the last warm-up in {@link SystemClock#elapsedRealtime()} millis */
+    private final AtomicLong lastWarmUp = new AtomicLong(-WARM_UP_INTERVAL);
     private String deviceId;
 
-    public RestClient(String appName, String appVersion, String apiUrl, CertificateManager certManager) {
-        OkHttpClient.Builder builder = new OkHttpClient.Builder()
-                .addInterceptor(new HeaderInterceptor(appName, appVersion))
-                .connectionSpecs(Collections.singletonList(ConnectionSpec.MODERN_TLS));
+    /**
+     * @param httpEngine the shared client as created by {@link HttpEngine#create(android.content.Context, String)}
+     * @param certClient the client the certificate manager refreshes with, its calls are scheduled with ours
+     * @param maxRetries maximum number of retries of a failed call, 0 disables retrying
+     */
+    public RestClient(String appName, String appVersion, String apiUrl, OkHttpClient httpEngine,
+                      CertClient certClient, CertificateManager certManager, int maxRetries) {
+        connectionMetrics = new ConnectionMetrics(httpEngine.dns());
+        OkHttpClient.Builder builder = httpEngine.newBuilder()
+                .addInterceptor(this::recoverPinningFailure)
+                .addInterceptor(new HeaderInterceptor(appName, appVersion, serverClock))
+                .addNetworkInterceptor(new PinningInterceptor(getHost(apiUrl), certManager, createChainCleaner()))
+                .addNetworkInterceptor(serverClock)
+                .eventListenerFactory(connectionMetrics);
 
         if (BuildConfig.DEBUG) {
             builder.addInterceptor(new HttpLoggingInterceptor(msg -> Log.d("OkHttp", msg))
@@ -64,11 +89,13 @@ public class RestClient implements CertificateManager.CertificatesUpdatedListene
         }
 
         this.client = builder.build();
+        this.scheduler = new RequestScheduler(client);
+        this.retrier = new Retrier(scheduler, maxRetries);
         this.apiUrl = apiUrl;
         this.certManager = certManager;
 
-        setCertificates(certManager.getCertificates());
-        certManager.updateCertificates(this);
+        certClient.setScheduler(scheduler);
+        certManager.start();
     }
 
     /**
@@ -86,38 +113,107 @@ public class RestClient implements CertificateManager.CertificatesUpdatedListene
     }
 
     /**
-     * Update the certificate pinner to pin the given certificates
+     * Get the clock of the server, estimated from the responses
      */
-    private void setCertificates(Set<String> certsSet) {
-        String[] certsArr = certsSet.toArray(new String[certsSet.size()]);
-        CertificatePinner certificatePinner = new CertificatePinner.Builder()
-                .add(getHost(apiUrl), certsArr)
-                .build();
-        client = client.newBuilder().certificatePinner(certificatePinner).build();
+    ServerClock getServerClock() {
+        return serverClock;
     }
 
     /**
-     * Certificates updated callback from the {@link CertificateManager}
+     * Refresh the certificates when pinning fails and replay the request once with the new certificates,
+     * so a rotated server key costs one extra round-trip instead of failing until the next scheduled refresh
      */
-    @Override
-    public void onCertificatesUpdated(Set<String> certificates) {
-        setCertificates(certificates);
+    private Response recoverPinningFailure(Interceptor.Chain chain) throws IOException {
+        Request request = chain.request();
+        try {
+            return chain.proceed(request);
+        } catch (PinningInterceptor.PinningFailureException e) {
+            Set<String> certificates;
+            try {
+                certificates = certManager.refreshCertificates(e.getPins());
+            } catch (IOException | GeneralSecurityException refreshException) {
+                Log.e(TAG, "Could not refresh certificates after pinning failure", refreshException);
+                throw e;
+            }
+
+            if (certificates.equals(e.getPins())) {
+                // the certificates didn't change, replaying would fail again
+                throw e;
+            }
+
+            return chain.proceed(request);
+        }
     }
 
     /**
      * Execute an HTTP call (synchronously)
      */
     Response callSync(Request request) throws IOException {
-        certManager.updateCertificates(this);
         return client.newCall(request).execute();
     }
 
     /**
-     * Enqueue an HTTP call (asynchronously)
+     * Enqueue an HTTP call (asynchronously), calls with a higher priority are started first and failed calls
+     * are retried as far as the policy allows
+     */
+    void callAsync(Request request, RequestScheduler.Priority priority, RetryPolicy retryPolicy, Callback callback) {
+        retrier.enqueue(request, priority, retryPolicy, callback);
+    }
+
+    /**
+     * Get a snapshot of the metrics of the calls made so far
      */
-    void callAsync(Request request, Callback callback) {
-        certManager.updateCertificates(this);
-        client.newCall(request).enqueue(callback);
+    public NetworkMetrics getMetrics() {
+        return new NetworkMetrics(
+                toLatency(scheduler.getQueueDelays(RequestScheduler.Priority.CRITICAL)),
+                toLatency(scheduler.getQueueDelays(RequestScheduler.Priority.INTERACTIVE)),
+                toLatency(scheduler.getQueueDelays(RequestScheduler.Priority.BACKGROUND)),
+                toLatency(connectionMetrics.getColdTimeToFirstByte()),
+                toLatency(connectionMetrics.getWarmTimeToFirstByte()),
+                retrier.getAttemptsPerCall(),
+                retrier.getBudgetExhaustedCount());
+    }
+
+    private static NetworkMetrics.Latency toLatency(LatencyRecorder recorder) {
+        return new NetworkMetrics.Latency(recorder.getPercentile(50), recorder.getPercentile(99),
+                recorder.getCount());
+    }
+
+    /**
+     * Set up a pinned connection to the API in the background, unless one is pooled already, so the next call
+     * doesn't pay for the DNS, TCP and TLS handshakes
+     * <p>
+     * The request is unsigned and bypasses the scheduler and the retrier, so it is neither retried nor counted in
+     * the retry budget. Repeated warm-ups within {@link #WARM_UP_INTERVAL} are ignored.
+     */
+    public void warmUp() {
+        long now = SystemClock.elapsedRealtime();
+        long last = lastWarmUp.get();
+        if (now - last < WARM_UP_INTERVAL || !lastWarmUp.compareAndSet(last, now)) {
+            return;
+        }
+
+        if (client.connectionPool().connectionCount() > 0) {
+            return;
+        }
+
+        Request request = new Request.Builder()
+                .url(apiUrl)
+                .head()
+                .build();
+
+        client.newCall(request).enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                Log.w(TAG, "Could not warm up the connection", e);
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                // any response will do, the connection is established
+                response.close();
+            }
+        });
     }
 
     /**
@@ -134,6 +230,17 @@ public class RestClient implements CertificateManager.CertificatesUpdatedListene
         return getDeviceUrl() + "/" + deviceId;
     }
 
+    /**
+     * Create the cleaner of the certificate chains to pin, using the trust manager of the platform like the client
+     */
+    private static CertificateChainCleaner createChainCleaner() {
+        try {
+            return CertificateChainCleaner.get(HttpEngine.getDefaultTrustManager());
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not get the trust manager to verify certificates with", e);
+        }
+    }
+
     /**
      * Get hostname from a URL
      */
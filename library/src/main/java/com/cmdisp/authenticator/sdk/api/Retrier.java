@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2017 CM Telecom B.V.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.cmdisp.authenticator.sdk.api;
+
+import android.text.format.DateUtils;
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Retries failed calls according to the {@link RetryPolicy} of the endpoint, with exponential backoff and full
+ * jitter
+ * <p>
+ * Retries are limited by a budget shared by all calls: every call adds a fraction of a token and every retry
+ * takes a whole token, so during an outage the retries stay a small fraction of the traffic.
+ */
+final class Retrier {
+    private static final String TAG = Retrier.class.getSimpleName();
+
+    private static final long BASE_DELAY = 250;
+    private static final long MAX_DELAY = 5 * DateUtils.SECOND_IN_MILLIS;
+    /** Tokens added to the budget by every call, allowing 1 retry per 10 calls in the long run */
+    private static final double BUDGET_PER_CALL = 0.1;
+    /** Maximum number of tokens in the budget, the burst of retries allowed after a quiet period */
+    private static final double BUDGET_MAX = 10;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Authenticator retry");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Random random;
+
+    private final RequestScheduler scheduler;
+    private final int maxRetries;
+    private double budget = BUDGET_MAX;
+
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong attempts = new AtomicLong();
+    private final AtomicLong budgetExhausted = new AtomicLong();
+
+    /**
+     * @param maxRetries maximum number of retries per call, 0 disables retrying
+     */
+    Retrier(RequestScheduler scheduler, int maxRetries) {
+        this(scheduler, maxRetries, new Random());
+    }
+
+    /**
+     * @param random source of the jitter
+     */
+    Retrier(RequestScheduler scheduler, int maxRetries, Random random) {
+        this.scheduler = scheduler;
+        this.maxRetries = maxRetries;
+        this.random = random;
+    }
+
+    /**
+     * Enqueue the call, failures are passed to the callback once the call can't be retried anymore
+     */
+    void enqueue(Request request, RequestScheduler.Priority priority, RetryPolicy policy, Callback callback) {
+        synchronized (this) {
+            budget = Math.min(BUDGET_MAX, budget + BUDGET_PER_CALL);
+        }
+        calls.incrementAndGet();
+        new RetryingCall(request, priority, policy, callback).attempt();
+    }
+
+    /**
+     * Get the average number of attempts per call
+     */
+    double getAttemptsPerCall() {
+        long calls = this.calls.get();
+        return calls == 0 ? 0 : (double) attempts.get() / calls;
+    }
+
+    /**
+     * Get the number of retries which were skipped because the budget was exhausted
+     */
+    long getBudgetExhaustedCount() {
+        return budgetExhausted.get();
+    }
+
+    private synchronized boolean withdrawBudget() {
+        if (budget < 1) {
+            return false;
+        }
+        budget--;
+        return true;
+    }
+
+    /**
+     * Get the delay before the retry, random between 0 and the exponential backoff (full jitter)
+     */
+    long getBackoff(int retry) {
+        long backoff = Math.min(MAX_DELAY, BASE_DELAY << Math.min(retry, 16));
+        synchronized (random) {
+            return (long) (random.nextDouble() * backoff);
+        }
+    }
+
+    /**
+     * Parse the delay requested by the server in seconds
+     *
+     * @return the delay in milliseconds, 0 if none or -1 if it's longer than we are willing to wait
+     */
+    static long getRetryAfter(Response response) {
+        String retryAfter = response.header("Retry-After");
+        if (retryAfter == null) {
+            return 0;
+        }
+
+        try {
+            long delay = Long.parseLong(retryAfter.trim()) * DateUtils.SECOND_IN_MILLIS;
+            return delay > MAX_DELAY ? -1 : Math.max(delay, 0);
+        } catch (NumberFormatException e) {
+            // HTTP-date, don't bother
+            return -1;
+        }
+    }
+
+    private final class RetryingCall implements Callback {
+        private final Request request;
+        private final RequestScheduler.Priority priority;
+        private final RetryPolicy policy;
+        private final Callback callback;
+        private int retries;
+
+        private RetryingCall(Request request, RequestScheduler.Priority priority, RetryPolicy policy,
+                             Callback callback) {
+            this.request = request;
+            this.priority = priority;
+            this.policy = policy;
+            this.callback = callback;
+        }
+
+        private void attempt() {
+            attempts.incrementAndGet();
+            scheduler.enqueue(request, priority, this);
+        }
+
+        @Override
+        public void onFailure(Call call, IOException e) {
+            if (call.isCanceled() || !policy.isRetryable(e) || !retry(0, e.toString())) {
+                callback.onFailure(call, e);
+            }
+        }
+
+        @Override
+        public void onResponse(Call call, Response response) throws IOException {
+            if (!response.isSuccessful() && policy.isRetryable(response.code())) {
+                long retryAfter = getRetryAfter(response);
+                if (retryAfter >= 0 && retry(retryAfter, "HTTP " + response.code())) {
+                    response.close();
+                    return;
+                }
+            }
+            callback.onResponse(call, response);
+        }
+
+        /**
+         * Schedule a retry if allowed
+         *
+         * @param minDelay minimum delay as requested by the server
+         * @return {@code true} when a retry was scheduled
+         */
+        private boolean retry(long minDelay, String reason) {
+            if (retries >= maxRetries) {
+                return false;
+            } else if (!withdrawBudget()) {
+                budgetExhausted.incrementAndGet();
+                Log.w(TAG, "Retry budget exhausted, not retrying " + request.url().encodedPath());
+                return false;
+            }
+
+            long delay = Math.max(minDelay, getBackoff(retries));
+            retries++;
+            Log.v(TAG, "Retrying " + request.method() + " " + request.url().encodedPath() + " after " + reason
+                    + " in " + delay + "ms, retry " + retries + " of " + maxRetries);
+            executor.schedule(this::attempt, delay, TimeUnit.MILLISECONDS);
+            return true;
+        }
+    }
+}
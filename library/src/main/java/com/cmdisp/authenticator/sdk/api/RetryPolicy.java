@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2017 CM Telecom B.V.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.cmdisp.authenticator.sdk.api;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.UnknownHostException;
+
+import javax.net.ssl.SSLException;
+
+/**
+ * Decides which failed calls of an endpoint may be retried
+ */
+enum RetryPolicy {
+    /** Never retry */
+    NONE {
+        @Override
+        boolean isRetryable(IOException e) {
+            return false;
+        }
+
+        @Override
+        boolean isRetryable(int code) {
+            return false;
+        }
+    },
+    /** Reads without side effects, retry any transient failure */
+    SAFE {
+        @Override
+        boolean isRetryable(IOException e) {
+            return !(e instanceof SSLException);
+        }
+
+        @Override
+        boolean isRetryable(int code) {
+            return code == 408 || code == 429 || code >= 500;
+        }
+    },
+    /** Writes which have the same effect when repeated, retry any transient failure */
+    IDEMPOTENT {
+        @Override
+        boolean isRetryable(IOException e) {
+            return SAFE.isRetryable(e);
+        }
+
+        @Override
+        boolean isRetryable(int code) {
+            return SAFE.isRetryable(code);
+        }
+    },
+    /**
+     * Writes which must happen once, e.g. approving an authentication request, only retry when the server
+     * could not have handled the request
+     */
+    UNSENT_ONLY {
+        @Override
+        boolean isRetryable(IOException e) {
+            return e instanceof ConnectException || e instanceof NoRouteToHostException
+                    || e instanceof UnknownHostException;
+        }
+
+        @Override
+        boolean isRetryable(int code) {
+            return code == 429 || code == 503;
+        }
+    };
+
+    /**
+     * Check whether the call may be retried after it failed with the exception
+     */
+    abstract boolean isRetryable(IOException e);
+
+    /**
+     * Check whether the call may be retried after the server responded with the unsuccessful status code
+     */
+    abstract boolean isRetryable(int code);
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2017 CM Telecom B.V.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.cmdisp.authenticator.sdk.api;
+
+import android.support.annotation.RestrictTo;
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.Date;
+
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+/**
+ * Network interceptor which estimates the offset of the server clock to the device clock using the Date header of
+ * the responses, so timestamps can be expressed in server time and the other way around
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY)
+public class ServerClock implements Interceptor {
+    private static final String TAG = ServerClock.class.getSimpleName();
+
+    /** The Date header is truncated to seconds */
+    private static final long DATE_RESOLUTION = 1000;
+
+    private volatile long offset;
+    private volatile boolean estimated;
+
+    /**
+     * Get the offset of the server clock to the device clock
+     *
+     * @return offset in milliseconds, positive when the server clock is ahead
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * Get the current time of the server clock
+     *
+     * @return the estimated server time in milliseconds since epoch
+     */
+    public long currentTimeMillis() {
+        return System.currentTimeMillis() + offset;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Response response = chain.proceed(chain.request());
+
+        Date date = response.headers().getDate("Date");
+        if (date != null) {
+            update(date.getTime(), response.sentRequestAtMillis(), response.receivedResponseAtMillis());
+        }
+
+        return response;
+    }
+
+    /**
+     * Update the offset with a new sample
+     *
+     * @param serverTime the time of the server when it sent the response
+     * @param sentAt     the device time when the request was sent
+     * @param receivedAt the device time when the response was received
+     */
+    synchronized void update(long serverTime, long sentAt, long receivedAt) {
+        long roundTrip = Math.max(0, receivedAt - sentAt);
+        // compare the middle of the second the server reported to the middle of the round trip
+        long sample = serverTime + DATE_RESOLUTION / 2 - (sentAt + roundTrip / 2);
+
+        // ignore samples within the uncertainty of the current estimate
+        long uncertainty = DATE_RESOLUTION / 2 + roundTrip / 2;
+        if (!estimated || Math.abs(sample - offset) > uncertainty) {
+            Log.v(TAG, "Server clock offset: " + sample + " ms");
+            offset = sample;
+            estimated = true;
+        }
+    }
+}
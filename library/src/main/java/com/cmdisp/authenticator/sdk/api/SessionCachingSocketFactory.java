@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2017 CM Telecom B.V.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.cmdisp.authenticator.sdk.api;
+
+import android.net.SSLSessionCache;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.security.GeneralSecurityException;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509TrustManager;
+
+/**
+ * Socket factory which persists the TLS sessions in a directory, so a cold started process can resume the
+ * session with an abbreviated handshake
+ * <p>
+ * Only the session cache is attached, the sockets are returned unconnected to the handshake so the protocols,
+ * cipher suites, ALPN and timeouts are still configured by OkHttp. The {@link SSLContext} and the cache are
+ * set up when the first socket is created, which happens on a thread of the dispatcher instead of the thread
+ * creating the client.
+ * <p>
+ * The cache is attached through {@code SSLSessionCache.install}, which is not part of the public SDK. It is
+ * missing on API 15 to 18, and later releases may block it as a restricted non-SDK interface. In that case a
+ * warning is logged and the factory falls back to the in-memory session cache of the platform, so a cold start
+ * does a full handshake again.
+ */
+final class SessionCachingSocketFactory extends SSLSocketFactory {
+    private static final String TAG = SessionCachingSocketFactory.class.getSimpleName();
+
+    private final File dir;
+    private final X509TrustManager trustManager;
+    private volatile SSLSocketFactory delegate;
+
+    /**
+     * @param dir          private directory to store the sessions in
+     * @param trustManager trust manager to verify the servers with
+     */
+    SessionCachingSocketFactory(File dir, X509TrustManager trustManager) {
+        this.dir = dir;
+        this.trustManager = trustManager;
+    }
+
+    /**
+     * Get the socket factory of the context, creating the context on first use
+     */
+    private SSLSocketFactory delegate() {
+        SSLSocketFactory factory = delegate;
+        if (factory == null) {
+            synchronized (this) {
+                factory = delegate;
+                if (factory == null) {
+                    factory = delegate = createContext().getSocketFactory();
+                }
+            }
+        }
+        return factory;
+    }
+
+    private SSLContext createContext() {
+        SSLContext context;
+        try {
+            context = SSLContext.getInstance("TLS");
+            context.init(null, new TrustManager[]{trustManager}, null);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("No TLS context available", e);
+        }
+
+        try {
+            installSessionCache(new SSLSessionCache(dir), context);
+        } catch (IOException | GeneralSecurityException e) {
+            Log.w(TAG, "Could not set up the TLS session cache, sessions won't be resumed after a restart", e);
+        }
+        return context;
+    }
+
+    /**
+     * Back the client session context by the persistent cache, using {@code SSLSessionCache.install} which is
+     * not part of the public SDK
+     */
+    private static void installSessionCache(SSLSessionCache cache, SSLContext context)
+            throws GeneralSecurityException {
+        try {
+            Method install = SSLSessionCache.class.getMethod("install", SSLSessionCache.class, SSLContext.class);
+            install.invoke(null, cache, context);
+        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+            throw new GeneralSecurityException("Could not install the TLS session cache", e);
+        }
+    }
+
+    @Override
+    public String[] getDefaultCipherSuites() {
+        return delegate().getDefaultCipherSuites();
+    }
+
+    @Override
+    public String[] getSupportedCipherSuites() {
+        return delegate().getSupportedCipherSuites();
+    }
+
+    @Override
+    public Socket createSocket() throws IOException {
+        return delegate().createSocket();
+    }
+
+    @Override
+    public Socket createSocket(Socket socket, String host, int port, boolean autoClose) throws IOException {
+        return delegate().createSocket(socket, host, port, autoClose);
+    }
+
+    @Override
+    public Socket createSocket(String host, int port) throws IOException {
+        return delegate().createSocket(host, port);
+    }
+
+    @Override
+    public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException {
+        return delegate().createSocket(host, port, localHost, localPort);
+    }
+
+    @Override
+    public Socket createSocket(InetAddress host, int port) throws IOException {
+        return delegate().createSocket(host, port);
+    }
+
+    @Override
+    public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort)
+            throws IOException {
+        return delegate().createSocket(address, port, localAddress, localPort);
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2017 CM Telecom B.V.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.cmdisp.authenticator.sdk.api;
+
+import android.support.annotation.RestrictTo;
+import android.util.Base64;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Verifies SHA256withRSA signatures against a single public key.
+ * <p>
+ * The key is decoded once and the {@link Signature} instances, initialized for verification, are pooled and
+ * reused. Safe to use from multiple threads.
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY)
+class SignatureVerifier {
+    private static final String ALGORITHM = "SHA256withRSA";
+
+    private final String encodedKey;
+    private final Queue<Signature> pool = new ConcurrentLinkedQueue<>();
+    private volatile PublicKey publicKey;
+
+    /**
+     * @param encodedKey base64-encoded X.509 public key
+     */
+    SignatureVerifier(String encodedKey) {
+        this.encodedKey = encodedKey;
+    }
+
+    /**
+     * Verify the signature of the data
+     */
+    boolean verify(byte[] data, byte[] signature) throws GeneralSecurityException {
+        Signature verifier = pool.poll();
+        if (verifier == null) {
+            verifier = Signature.getInstance(ALGORITHM);
+            verifier.initVerify(getPublicKey());
+        }
+
+        verifier.update(data);
+        boolean verified = verifier.verify(signature);
+
+        // verify() resets the instance to its initialized state, so it can be reused
+        pool.offer(verifier);
+        return verified;
+    }
+
+    /**
+     * Decode the public key, only done once
+     */
+    private PublicKey getPublicKey() throws GeneralSecurityException {
+        PublicKey key = publicKey;
+        if (key == null) {
+            byte[] keyBytes = Base64.decode(encodedKey, Base64.DEFAULT);
+            X509EncodedKeySpec spec = new X509EncodedKeySpec(keyBytes);
+            key = KeyFactory.getInstance("RSA").generatePublic(spec);
+            publicKey = key;
+        }
+        return key;
+    }
+}
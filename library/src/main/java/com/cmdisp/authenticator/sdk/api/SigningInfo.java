@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2017 CM Telecom B.V.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.cmdisp.authenticator.sdk.api;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Tag for requests which need to be signed by the {@link HeaderInterceptor}
+ *
+ * @see okhttp3.Request.Builder#tag(Object)
+ */
+final class SigningInfo {
+    private final String secret;
+    private Map<String, Object> claims = Collections.emptyMap();
+
+    /**
+     * @param secret secret used to sign the request
+     */
+    SigningInfo(String secret) {
+        this.secret = secret;
+    }
+
+    /**
+     * Add a claim to the payload of the token, on top of the standard time claims
+     */
+    SigningInfo claim(String name, Object value) {
+        if (claims.isEmpty()) {
+            claims = new LinkedHashMap<>();
+        }
+        claims.put(name, value);
+        return this;
+    }
+
+    String getSecret() {
+        return secret;
+    }
+
+    Map<String, Object> getClaims() {
+        return claims;
+    }
+}
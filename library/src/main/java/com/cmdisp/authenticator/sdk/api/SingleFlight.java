@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2017 CM Telecom B.V.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.cmdisp.authenticator.sdk.api;
+
+import android.util.Log;
+
+import com.cmdisp.authenticator.sdk.callback.Callback;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Coalesces concurrent identical reads into a single in-flight call, the result is passed to the callbacks of
+ * all callers which joined while the call was in flight
+ *
+ * @param <T> type of the result
+ */
+final class SingleFlight<T> {
+    private static final String TAG = SingleFlight.class.getSimpleName();
+
+    private final Map<String, List<Callback<T>>> inFlight = new HashMap<>();
+
+    /**
+     * Join the call for the key
+     *
+     * @return {@code true} when the caller should start the call, {@code false} when a call is already in flight
+     */
+    synchronized boolean join(String key, Callback<T> callback) {
+        List<Callback<T>> callbacks = inFlight.get(key);
+        if (callbacks != null) {
+            callbacks.add(callback);
+            return false;
+        }
+
+        callbacks = new ArrayList<>(2);
+        callbacks.add(callback);
+        inFlight.put(key, callbacks);
+        return true;
+    }
+
+    /**
+     * Complete the call for the key successfully, later callers will start a new call
+     * <p>
+     * Every callback is called, also when an earlier one throws. The first exception is rethrown afterwards, so it
+     * reaches the thread like it would without coalescing, later ones are logged.
+     */
+    void onSuccess(String key, T result) {
+        RuntimeException thrown = null;
+        for (Callback<T> callback : complete(key)) {
+            try {
+                callback.handleOnSuccess(result);
+            } catch (RuntimeException e) {
+                thrown = collect(thrown, e);
+            }
+        }
+        if (thrown != null) {
+            throw thrown;
+        }
+    }
+
+    /**
+     * Complete the call for the key with a failure, later callers will start a new call
+     * <p>
+     * Exceptions thrown by the callbacks are handled like in {@link #onSuccess(String, Object)}.
+     */
+    void onFailure(String key, Exception e) {
+        RuntimeException thrown = null;
+        for (Callback<T> callback : complete(key)) {
+            try {
+                callback.handleOnFailure(e);
+            } catch (RuntimeException re) {
+                thrown = collect(thrown, re);
+            }
+        }
+        if (thrown != null) {
+            throw thrown;
+        }
+    }
+
+    /**
+     * Keep the first exception thrown by a callback, log the others
+     */
+    private static RuntimeException collect(RuntimeException first, RuntimeException e) {
+        if (first == null) {
+            return e;
+        }
+        Log.e(TAG, "Callback failed", e);
+        return first;
+    }
+
+    private synchronized List<Callback<T>> complete(String key) {
+        List<Callback<T>> callbacks = inFlight.remove(key);
+        return callbacks != null ? callbacks : new ArrayList<>();
+    }
+}
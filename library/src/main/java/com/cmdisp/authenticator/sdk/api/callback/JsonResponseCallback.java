@@ -22,34 +22,49 @@
 
 package com.cmdisp.authenticator.sdk.api.callback;
 
-import org.json.JSONArray;
-import org.json.JSONException;
+import android.util.JsonReader;
 
+import java.io.EOFException;
 import java.io.IOException;
 
 import okhttp3.Response;
+import okhttp3.ResponseBody;
 
-public abstract class JsonArrayResponseCallback extends BaseCallback {
+/**
+ * Parses the JSON response while reading it from the network, without holding the body or a JSON tree in memory
+ *
+ * @param <T> type of the parsed response
+ */
+public abstract class JsonResponseCallback<T> extends BaseCallback {
 
     @Override
     protected void onResponse(Response response) throws IOException {
         //noinspection ConstantConditions
-        String body = response.body().string();
-        if (body.isEmpty()) {
-            onFailure(new IOException("Response body is empty"));
-            return;
-        }
+        ResponseBody body = response.body();
 
-        JSONArray jsonArray;
+        T result;
         try {
-            jsonArray = new JSONArray(body);
-        } catch (JSONException e) {
+            result = parse(new JsonReader(body.charStream()));
+        } catch (EOFException e) {
+            onFailure(new IOException("Response body is empty", e));
+            return;
+        } catch (IllegalStateException | NumberFormatException e) {
             onFailure(new IOException("Could not parse JSON", e));
             return;
+        } catch (IOException e) {
+            onFailure(e);
+            return;
+        } finally {
+            body.close();
         }
 
-        onResponse(response.code(), jsonArray);
+        onResponse(response.code(), result);
     }
 
-    protected abstract void onResponse(int statusCode, JSONArray jsonArray);
+    /**
+     * Parse the response, called on the background thread
+     */
+    protected abstract T parse(JsonReader reader) throws IOException;
+
+    protected abstract void onResponse(int statusCode, T result);
 }
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2017 CM Telecom B.V.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.cmdisp.authenticator.sdk.api.codec;
+
+import com.cmdisp.authenticator.sdk.models.DeviceInfo;
+
+/**
+ * Payload to create or update the device registration, {@code null} values are left out
+ */
+@JsonEncoder
+public final class RegistrationPayload {
+    @JsonField("manufacturer") final String manufacturer;
+    @JsonField("os_version") final String osVersion;
+    @JsonField("app_version") final String appVersion;
+    @JsonField("app_id") final String appId;
+    @JsonField("language_code") final String languageCode;
+    @JsonField("model") final String model;
+    @JsonField("model_id") final String modelId;
+
+    @JsonField("platform") final String platform;
+    @JsonField("push_token") final String pushToken;
+    @JsonField("push_enabled") final Boolean pushEnabled;
+    @JsonField("phone_number") final String phoneNumber;
+    @JsonField("verification_code") final String verificationCode;
+    @JsonField("app_key") final String appKey;
+
+    public RegistrationPayload(DeviceInfo deviceInfo, String appKey, String phoneNumber, String verificationCode,
+                               String registrationToken, Boolean pushEnabled) {
+        this.manufacturer = deviceInfo.getManufacturer();
+        this.osVersion = deviceInfo.getOSVersion();
+        this.appVersion = deviceInfo.getAppVersion();
+        this.appId = deviceInfo.getAppId();
+        this.languageCode = deviceInfo.getLanguage();
+        this.model = deviceInfo.getModel();
+        this.modelId = deviceInfo.getModelId();
+
+        this.platform = deviceInfo.getOSName();
+        this.pushToken = registrationToken;
+        this.pushEnabled = pushEnabled;
+        this.phoneNumber = phoneNumber;
+        this.verificationCode = verificationCode;
+        this.appKey = appKey;
+    }
+}
@@ -20,36 +20,23 @@
  * SOFTWARE.
  */
 
-package com.cmdisp.authenticator.sdk.api.callback;
+package com.cmdisp.authenticator.sdk.api.codec;
 
-import org.json.JSONException;
-import org.json.JSONObject;
+import com.cmdisp.authenticator.sdk.models.Status;
 
-import java.io.IOException;
-
-import okhttp3.Response;
-
-public abstract class JsonObjectResponseCallback extends BaseCallback {
-
-    @Override
-    protected void onResponse(Response response) throws IOException {
-        //noinspection ConstantConditions
-        String body = response.body().string();
-        if (body.isEmpty()) {
-            onFailure(new IOException("Response body is empty"));
-            return;
-        }
-
-        JSONObject jsonObject;
-        try {
-            jsonObject = new JSONObject(body);
-        } catch (JSONException e) {
-            onFailure(new IOException("Could not parse JSON", e));
-            return;
-        }
+/**
+ * Status of an authentication request as sent to and returned by the API
+ */
+@JsonEncoder
+public final class StatusPayload {
+    @JsonField("auth_status") final Status status;
 
-        onResponse(response.code(), jsonObject);
+    @JsonDecoder
+    public StatusPayload(@JsonField("auth_status") Status status) {
+        this.status = status;
     }
 
-    protected abstract void onResponse(int statusCode, JSONObject jsonObject);
+    public Status getStatus() {
+        return status;
+    }
 }
@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) 2017 CM Telecom B.V.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+/**
+ * Streaming JSON codecs for the API models, decoding with a switch on the field name straight from the
+ * {@link android.util.JsonReader} and encoding payloads straight into the request body
+ * <p>
+ * The {@code <Type>Codec} classes are generated at build time by the {@code codec-compiler} module from the
+ * {@link com.cmdisp.authenticator.sdk.api.codec.JsonDecoder} and
+ * {@link com.cmdisp.authenticator.sdk.api.codec.JsonEncoder} annotations.
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY)
+package com.cmdisp.authenticator.sdk.api.codec;
+
+import android.support.annotation.RestrictTo;
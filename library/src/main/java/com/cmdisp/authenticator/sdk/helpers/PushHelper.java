@@ -25,9 +25,11 @@ package com.cmdisp.authenticator.sdk.helpers;
 import android.os.Bundle;
 import android.support.annotation.NonNull;
 
+import com.cmdisp.authenticator.sdk.Authenticator;
 import com.cmdisp.authenticator.sdk.api.EnvironmentClient;
 import com.cmdisp.authenticator.sdk.callback.Callback;
 import com.cmdisp.authenticator.sdk.models.BaseAuthenticationRequest;
+import com.cmdisp.authenticator.sdk.models.Environment;
 import com.cmdisp.authenticator.sdk.models.Type;
 
 import java.util.Map;
@@ -57,6 +59,11 @@ public class PushHelper {
         this.data = data;
         String rawType = data.getString("type");
         this.type = PushType.fromString(rawType);
+
+        // the user is likely to respond, have a connection ready
+        if (type != PushType.PLAIN) {
+            Authenticator.warmUp();
+        }
     }
 
     /**
@@ -89,6 +96,24 @@ public class PushHelper {
         return new BaseAuthenticationRequest(authId, envId, authType);
     }
 
+    /**
+     * Fetch the full authentication request of the push message in the background, so it's available right away
+     * using {@link EnvironmentClient#getCachedAuthenticationRequest(String)} when the user opens it
+     *
+     * @param env environment matching the authentication request, ignored when it doesn't match
+     */
+    public void prefetchAuthenticationRequest(@NonNull Environment env) {
+        if (type != PushType.INSTANT && type != PushType.OTP) {
+            return;
+        }
+
+        String envId = data.getString("envId");
+        String envSecret = env.getSecret();
+        if (envId != null && envId.equals(env.getId()) && envSecret != null) {
+            Authenticator.environmentClient().prefetchAuthenticationRequest(envId, envSecret);
+        }
+    }
+
     /**
      * Get the message body from the push message
      */
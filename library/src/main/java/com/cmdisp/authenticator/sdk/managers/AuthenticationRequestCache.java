@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2017 CM Telecom B.V.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.cmdisp.authenticator.sdk.managers;
+
+import android.text.format.DateUtils;
+import android.util.Log;
+
+import com.cmdisp.authenticator.sdk.callback.ExpiryListener;
+import com.cmdisp.authenticator.sdk.models.AuthenticationRequest;
+import com.cmdisp.authenticator.sdk.util.TimingWheel;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * In-memory cache of the pending authentication request per environment, requests are evicted when they
+ * expire and the {@link ExpiryListener listeners} are notified
+ */
+public class AuthenticationRequestCache {
+    private static final String TAG = AuthenticationRequestCache.class.getSimpleName();
+
+    /** Number of expired authentication request ids to remember */
+    private static final int MAX_EXPIRED_IDS = 32;
+
+    private final TimingWheel timingWheel = new TimingWheel(DateUtils.SECOND_IN_MILLIS, 64, "Authenticator expiry");
+    private final List<ExpiryListener> listeners = new CopyOnWriteArrayList<>();
+    private final Map<String, Entry> requests = new HashMap<>();
+    private final Map<String, Boolean> expiredIds = new LinkedHashMap<String, Boolean>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > MAX_EXPIRED_IDS;
+        }
+    };
+
+    /**
+     * Get the pending authentication request of the environment
+     *
+     * @return the authentication request or {@code null} when there is none or it expired
+     */
+    public synchronized AuthenticationRequest get(String envId) {
+        Entry entry = requests.get(envId);
+        if (entry == null || isExpired(entry.authReq)) {
+            return null;
+        }
+        return entry.authReq;
+    }
+
+    /**
+     * Replace the pending authentication request of the environment
+     *
+     * @param authReq the authentication request, {@code null} when the environment has none
+     */
+    public synchronized void put(String envId, AuthenticationRequest authReq) {
+        Entry previous = requests.remove(envId);
+        if (previous != null) {
+            previous.timeout.cancel();
+        }
+        if (authReq == null || authReq.getCreated() == null) {
+            return;
+        }
+
+        // the API is leading, an expired request is evicted again at the next tick
+        expiredIds.remove(authReq.getId());
+
+        Entry entry = new Entry(authReq);
+        entry.timeout = timingWheel.schedule(() -> expire(envId, entry), authReq.getExpired().getTime());
+        requests.put(envId, entry);
+    }
+
+    /**
+     * Remove the authentication request, e.g. after it has been approved or denied
+     */
+    public synchronized void remove(String authId) {
+        Iterator<Entry> iterator = requests.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.authReq.getId().equals(authId)) {
+                entry.timeout.cancel();
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Remove the authentication request and remember it expired, e.g. when the API reports it's gone
+     */
+    public synchronized void markExpired(String authId) {
+        remove(authId);
+        expiredIds.put(authId, Boolean.TRUE);
+    }
+
+    /**
+     * Check whether the authentication request is known to be expired
+     */
+    public synchronized boolean isExpired(String authId) {
+        if (expiredIds.containsKey(authId)) {
+            return true;
+        }
+        for (Entry entry : requests.values()) {
+            if (entry.authReq.getId().equals(authId)) {
+                return isExpired(entry.authReq);
+            }
+        }
+        return false;
+    }
+
+    public void addExpiryListener(ExpiryListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeExpiryListener(ExpiryListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Evict the expired authentication request and notify the listeners
+     */
+    private void expire(String envId, Entry entry) {
+        synchronized (this) {
+            if (requests.get(envId) != entry) {
+                return;
+            }
+            requests.remove(envId);
+            expiredIds.put(entry.authReq.getId(), Boolean.TRUE);
+        }
+
+        for (ExpiryListener listener : listeners) {
+            try {
+                listener.onExpired(entry.authReq);
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Expiry listener failed", e);
+            }
+        }
+    }
+
+    private static boolean isExpired(AuthenticationRequest authReq) {
+        return authReq.getExpired().getTime() <= System.currentTimeMillis();
+    }
+
+    private static final class Entry {
+        private final AuthenticationRequest authReq;
+        private TimingWheel.Timeout timeout;
+
+        private Entry(AuthenticationRequest authReq) {
+            this.authReq = authReq;
+        }
+    }
+}
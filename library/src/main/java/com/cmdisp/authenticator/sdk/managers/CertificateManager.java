@@ -29,80 +29,160 @@ import android.util.Log;
 
 import com.cmdisp.authenticator.sdk.BuildConfig;
 import com.cmdisp.authenticator.sdk.api.CertClient;
-import com.cmdisp.authenticator.sdk.callback.Callback;
 
+import java.io.IOException;
+import java.security.GeneralSecurityException;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.Random;
 import java.util.Set;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 public class CertificateManager {
     private static final String TAG = CertificateManager.class.getSimpleName();
     private static final String PREF_FILE_NAME = BuildConfig.APPLICATION_ID + ".cert_pinning"; // TODO: prefix with 'authenticator'?
     private static final String PREF_KEY_CERTS = "certificates";
 
-    private long nextRefreshTimestamp;
-    private final AtomicBoolean isRefreshing = new AtomicBoolean(false);
+    /** Spread the hourly refreshes of all devices over 10 minutes */
+    private static final long REFRESH_JITTER = 10 * DateUtils.MINUTE_IN_MILLIS;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Authenticator certificate refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Random random = new Random();
 
     private final SharedPreferences preferences;
     private final CertClient certClient;
     private final String initialCert;
 
+    /** In-memory snapshot of the stored certificates, {@code null} until loaded */
+    private volatile Pins pins;
+    private final CountDownLatch loaded = new CountDownLatch(1);
+
     public CertificateManager(Context context, CertClient certClient, String initialCert) {
         preferences = context.getSharedPreferences(PREF_FILE_NAME, Context.MODE_PRIVATE);
         this.certClient = certClient;
         this.initialCert = initialCert;
+
+        scheduler.execute(this::load);
     }
 
     /**
      * Get the certificates
+     * <p>
+     * The returned set is immutable and stays the same instance until the certificates change.
+     * Blocks until the stored certificates are loaded, which only happens right after initialization.
      */
     public Set<String> getCertificates() {
-        Set<String> certs = loadCertificates();
-        if (certs == null || certs.isEmpty()) {
-            return Collections.singleton(initialCert);
-        } else {
+        return getPins().certificates;
+    }
+
+    /**
+     * Start refreshing the certificates in the background, the current certificates stay in use while refreshing
+     */
+    public void start() {
+        scheduler.execute(this::refresh);
+    }
+
+    /**
+     * Refresh the certificates right away, e.g. after a pinning failure.
+     * <p>
+     * Concurrent callers are served by a single refresh: when the certificates changed since the caller
+     * observed them, the current certificates are returned without calling the API again.
+     *
+     * @param staleCerts the certificates the caller found to be out of date
+     * @return the current certificates
+     */
+    public synchronized Set<String> refreshCertificates(Set<String> staleCerts) throws IOException, GeneralSecurityException {
+        Set<String> certs = getCertificates();
+        if (!certs.equals(staleCerts)) {
             return certs;
         }
+
+        update(true);
+        return getCertificates();
     }
 
     /**
-     * Retrieve the current certificates from the API
+     * Retrieve the current certificates from the API and schedule the next refresh
+     */
+    private void refresh() {
+        long delay;
+        try {
+            update(false);
+            delay = DateUtils.HOUR_IN_MILLIS - REFRESH_JITTER / 2 + (long) (random.nextDouble() * REFRESH_JITTER);
+        } catch (Exception e) {
+            Log.e(TAG, "Could not get certificates", e);
+            delay = DateUtils.MINUTE_IN_MILLIS;
+        }
+        scheduler.schedule(this::refresh, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Retrieve the current certificates from the API and write them through when they changed
      *
-     * @param listener listener to notify when the certificates changed
+     * @param now bypass the scheduler of the API calls, see {@link CertClient#getCertificatesNow()}
      */
-    public void updateCertificates(CertificatesUpdatedListener listener) {
-        if (nextRefreshTimestamp > System.currentTimeMillis() || isRefreshing.getAndSet(true)) {
-            Log.v(TAG, "Refresh not needed");
+    private synchronized void update(boolean now) throws IOException, GeneralSecurityException {
+        Log.v(TAG, "Refreshing certificates");
+        Set<String> certificates = now ? certClient.getCertificatesNow() : certClient.getCertificates();
+        Log.v(TAG, "Finished refreshing, got " + certificates.size() + " certificates");
+        if (certificates.isEmpty()) {
+            // pinning against nothing would fail every call, keep the current certificates
+            Log.w(TAG, "Ignoring empty certificate refresh");
             return;
         }
 
-        Log.v(TAG, "Refreshing certificates");
-        certClient.getCertificates(new Callback<Set<String>>() {
-            @Override
-            public void onSuccess(Set<String> certificates) {
-                Log.v(TAG, "Finished refreshing, got " + certificates.size() + " certificates");
-                if (!certificates.equals(loadCertificates())) {
-                    storeCertificates(certificates);
-                    listener.onCertificatesUpdated(certificates);
-                }
-                nextRefreshTimestamp = System.currentTimeMillis() + DateUtils.HOUR_IN_MILLIS;
-                isRefreshing.set(false);
-            }
+        Pins current = getPins();
+        if (!certificates.equals(current.certificates)) {
+            pins = new Pins(current.version + 1, certificates);
+            storeCertificates(certificates);
+            Log.v(TAG, "Certificates changed, now at version " + (current.version + 1));
+        }
+    }
+
+    private Pins getPins() {
+        Pins pins = this.pins;
+        if (pins != null) {
+            return pins;
+        }
 
-            @Override
-            public void onFailure(Exception e) {
-                Log.e(TAG, "Could not get certificates", e);
-                nextRefreshTimestamp = System.currentTimeMillis() + DateUtils.MINUTE_IN_MILLIS;
-                isRefreshing.set(false);
+        boolean interrupted = false;
+        while (true) {
+            try {
+                loaded.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
             }
-        });
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return this.pins;
     }
 
     /**
-     * Load the certificates from the storage
+     * Load the certificates from the storage into memory
      */
-    private Set<String> loadCertificates() {
-        return preferences.getStringSet(PREF_KEY_CERTS, null);
+    private void load() {
+        Set<String> certs = null;
+        try {
+            certs = preferences.getStringSet(PREF_KEY_CERTS, null);
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Could not load certificates", e);
+        } finally {
+            if (certs == null || certs.isEmpty()) {
+                certs = Collections.singleton(initialCert);
+            }
+            pins = new Pins(0, certs);
+            loaded.countDown();
+        }
     }
 
     /**
@@ -112,7 +192,16 @@ public class CertificateManager {
         preferences.edit().putStringSet(PREF_KEY_CERTS, certificatePins).apply();
     }
 
-    public interface CertificatesUpdatedListener {
-        void onCertificatesUpdated(Set<String> certificates);
+    /**
+     * Immutable, versioned set of certificates
+     */
+    private static final class Pins {
+        private final int version;
+        private final Set<String> certificates;
+
+        private Pins(int version, Set<String> certificates) {
+            this.version = version;
+            this.certificates = Collections.unmodifiableSet(new HashSet<>(certificates));
+        }
     }
 }
@@ -27,6 +27,9 @@ import android.os.Parcelable;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
+import com.cmdisp.authenticator.sdk.api.codec.JsonDecoder;
+import com.cmdisp.authenticator.sdk.api.codec.JsonField;
+
 import java.util.Date;
 
 /**
@@ -38,6 +41,7 @@ public class AuthenticationRequest extends BaseAuthenticationRequest implements
     private final Location location;
     private final int expiry;
     private final Date created;
+    private final long clockOffset;
 
     private AuthenticationRequest(Builder builder) {
         super(builder.id, builder.environmentId, builder.type);
@@ -46,6 +50,7 @@ public class AuthenticationRequest extends BaseAuthenticationRequest implements
         this.location = builder.location;
         this.expiry = builder.expiry;
         this.created = builder.created;
+        this.clockOffset = builder.clockOffset;
     }
 
     /**
@@ -91,12 +96,16 @@ public class AuthenticationRequest extends BaseAuthenticationRequest implements
 
     /**
      * Get date the request will expire
+     * <p>
+     * Unlike {@link #getCreated()}, which is the time of the server, the date is corrected for the difference
+     * between the server clock and the device clock, so it can be compared to {@link System#currentTimeMillis()}
      */
     @NonNull
     public Date getExpired() {
-        return new Date(created.getTime() + (expiry * 1000));
+        return new Date(created.getTime() - clockOffset + (expiry * 1000));
     }
 
+    @JsonDecoder
     public static final class Builder {
         private String id;
         private String environmentId;
@@ -106,10 +115,12 @@ public class AuthenticationRequest extends BaseAuthenticationRequest implements
         private Location location;
         private int expiry;
         private Date created;
+        private long clockOffset;
 
         public Builder() {
         }
 
+        @JsonField("id")
         public Builder setId(String id) {
             this.id = id;
             return this;
@@ -120,36 +131,50 @@ public class AuthenticationRequest extends BaseAuthenticationRequest implements
             return this;
         }
 
+        @JsonField("auth_type")
         public Builder setType(Type type) {
             this.type = type;
             return this;
         }
 
+        @JsonField("pin")
         public Builder setPin(String pin) {
             this.pin = pin;
             return this;
         }
 
+        @JsonField("ip")
         public Builder setIp(String ip) {
             this.ip = ip;
             return this;
         }
 
+        @JsonField("geoip")
         public Builder setLocation(Location location) {
             this.location = location;
             return this;
         }
 
+        @JsonField("expiry")
         public Builder setExpiry(int expiry) {
             this.expiry = expiry;
             return this;
         }
 
+        @JsonField("created_at")
         public Builder setCreated(Date created) {
             this.created = created;
             return this;
         }
 
+        /**
+         * Set the offset of the server clock to the device clock in milliseconds, positive when the server is ahead
+         */
+        public Builder setClockOffset(long clockOffset) {
+            this.clockOffset = clockOffset;
+            return this;
+        }
+
         public AuthenticationRequest build() {
             return new AuthenticationRequest(this);
         }
@@ -170,6 +195,7 @@ public class AuthenticationRequest extends BaseAuthenticationRequest implements
         dest.writeParcelable(this.location, flags);
         dest.writeInt(this.expiry);
         dest.writeLong(this.created != null ? this.created.getTime() : -1);
+        dest.writeLong(this.clockOffset);
     }
 
     private AuthenticationRequest(Parcel in) {
@@ -180,6 +206,7 @@ public class AuthenticationRequest extends BaseAuthenticationRequest implements
         this.expiry = in.readInt();
         long tmpCreated = in.readLong();
         this.created = tmpCreated == -1 ? null : new Date(tmpCreated);
+        this.clockOffset = in.readLong();
     }
 
     public static final Parcelable.Creator<AuthenticationRequest> CREATOR = new Parcelable.Creator<AuthenticationRequest>() {
@@ -22,13 +22,21 @@
 
 package com.cmdisp.authenticator.sdk.models;
 
+import com.cmdisp.authenticator.sdk.api.codec.JsonDecoder;
+import com.cmdisp.authenticator.sdk.api.codec.JsonField;
+
 public class DefaultEnvironment implements Environment {
     private final String id;
     private final String name;
     private final String secret;
     private final String iconUrl;
 
-    public DefaultEnvironment(String id, String name, String secret, String iconUrl) {
+    /**
+     * The API never returns the secret, so it's not decoded
+     */
+    @JsonDecoder
+    public DefaultEnvironment(@JsonField("id") String id, @JsonField("name") String name, String secret,
+                              @JsonField("icon_url") String iconUrl) {
         this.id = id;
         this.name = name;
         this.secret = secret;
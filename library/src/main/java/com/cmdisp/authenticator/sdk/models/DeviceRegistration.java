@@ -22,6 +22,9 @@
 
 package com.cmdisp.authenticator.sdk.models;
 
+import com.cmdisp.authenticator.sdk.api.codec.JsonDecoder;
+import com.cmdisp.authenticator.sdk.api.codec.JsonField;
+
 public class DeviceRegistration {
     private String id;
     private String phoneNumber;
@@ -29,7 +32,11 @@ public class DeviceRegistration {
     private String registrationToken;
     private boolean pushEnabled;
 
-    public DeviceRegistration(String id, String phoneNumber, RegistrationStatus status, String registrationToken, boolean pushEnabled) {
+    @JsonDecoder
+    public DeviceRegistration(@JsonField("id") String id, @JsonField("phone_number") String phoneNumber,
+                              @JsonField("registration_status") RegistrationStatus status,
+                              @JsonField("push_token") String registrationToken,
+                              @JsonField("push_enabled") boolean pushEnabled) {
         this.id = id;
         this.phoneNumber = phoneNumber;
         this.status = status;
@@ -26,6 +26,9 @@ import android.os.Parcel;
 import android.os.Parcelable;
 import android.support.annotation.Nullable;
 
+import com.cmdisp.authenticator.sdk.api.codec.JsonDecoder;
+import com.cmdisp.authenticator.sdk.api.codec.JsonField;
+
 public class Location implements Parcelable {
     private final String countryCode;
     private final String region;
@@ -83,6 +86,7 @@ public class Location implements Parcelable {
         return longitude;
     }
 
+    @JsonDecoder
     public static final class Builder {
         private String countryCode;
         private String region;
@@ -93,26 +97,31 @@ public class Location implements Parcelable {
         public Builder() {
         }
 
+        @JsonField("country_code")
         public Builder setCountryCode(String countryCode) {
             this.countryCode = countryCode;
             return this;
         }
 
+        @JsonField("region")
         public Builder setRegion(String region) {
             this.region = region;
             return this;
         }
 
+        @JsonField("city")
         public Builder setCity(String city) {
             this.city = city;
             return this;
         }
 
+        @JsonField("latitude")
         public Builder setLatitude(Double latitude) {
             this.latitude = latitude;
             return this;
         }
 
+        @JsonField("longitude")
         public Builder setLongitude(Double longitude) {
             this.longitude = longitude;
             return this;
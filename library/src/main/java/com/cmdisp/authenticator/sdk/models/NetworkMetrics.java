@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2017 CM Telecom B.V.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.cmdisp.authenticator.sdk.models;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Snapshot of the metrics of the calls made to the API
+ */
+public class NetworkMetrics {
+    private final Latency criticalQueueDelay;
+    private final Latency interactiveQueueDelay;
+    private final Latency backgroundQueueDelay;
+    private final Latency coldTimeToFirstByte;
+    private final Latency warmTimeToFirstByte;
+    private final double attemptsPerCall;
+    private final long retryBudgetExhaustedCount;
+
+    public NetworkMetrics(Latency criticalQueueDelay, Latency interactiveQueueDelay, Latency backgroundQueueDelay,
+                          Latency coldTimeToFirstByte, Latency warmTimeToFirstByte, double attemptsPerCall,
+                          long retryBudgetExhaustedCount) {
+        this.criticalQueueDelay = criticalQueueDelay;
+        this.interactiveQueueDelay = interactiveQueueDelay;
+        this.backgroundQueueDelay = backgroundQueueDelay;
+        this.coldTimeToFirstByte = coldTimeToFirstByte;
+        this.warmTimeToFirstByte = warmTimeToFirstByte;
+        this.attemptsPerCall = attemptsPerCall;
+        this.retryBudgetExhaustedCount = retryBudgetExhaustedCount;
+    }
+
+    /**
+     * Get the time user actions, e.g. approving an authentication request, were queued before being sent
+     */
+    @NonNull
+    public Latency getCriticalQueueDelay() {
+        return criticalQueueDelay;
+    }
+
+    /**
+     * Get the time reads the user waited for, e.g. getting an authentication request, were queued before being
+     * sent
+     */
+    @NonNull
+    public Latency getInteractiveQueueDelay() {
+        return interactiveQueueDelay;
+    }
+
+    /**
+     * Get the time background calls, e.g. updating the device registration, were queued before being sent
+     */
+    @NonNull
+    public Latency getBackgroundQueueDelay() {
+        return backgroundQueueDelay;
+    }
+
+    /**
+     * Get the time to first byte of calls which had to set up a new connection
+     */
+    @NonNull
+    public Latency getColdTimeToFirstByte() {
+        return coldTimeToFirstByte;
+    }
+
+    /**
+     * Get the time to first byte of calls which reused a pooled connection
+     */
+    @NonNull
+    public Latency getWarmTimeToFirstByte() {
+        return warmTimeToFirstByte;
+    }
+
+    /**
+     * Get the average number of attempts per call, 1 means no call had to be retried
+     */
+    public double getAttemptsPerCall() {
+        return attemptsPerCall;
+    }
+
+    /**
+     * Get the number of retries which were skipped because too many calls were retried recently
+     */
+    public long getRetryBudgetExhaustedCount() {
+        return retryBudgetExhaustedCount;
+    }
+
+    @Override
+    public String toString() {
+        return "NetworkMetrics{" +
+                "criticalQueueDelay=" + criticalQueueDelay +
+                ", interactiveQueueDelay=" + interactiveQueueDelay +
+                ", backgroundQueueDelay=" + backgroundQueueDelay +
+                ", coldTimeToFirstByte=" + coldTimeToFirstByte +
+                ", warmTimeToFirstByte=" + warmTimeToFirstByte +
+                ", attemptsPerCall=" + attemptsPerCall +
+                ", retryBudgetExhaustedCount=" + retryBudgetExhaustedCount +
+                '}';
+    }
+
+    /**
+     * Percentiles of the most recent samples of a latency
+     */
+    public static class Latency {
+        private final long p50Millis;
+        private final long p99Millis;
+        private final long count;
+
+        public Latency(long p50Millis, long p99Millis, long count) {
+            this.p50Millis = p50Millis;
+            this.p99Millis = p99Millis;
+            this.count = count;
+        }
+
+        /**
+         * Get the median in milliseconds, 0 when nothing has been recorded
+         */
+        public long getP50Millis() {
+            return p50Millis;
+        }
+
+        /**
+         * Get the 99th percentile in milliseconds, 0 when nothing has been recorded
+         */
+        public long getP99Millis() {
+            return p99Millis;
+        }
+
+        /**
+         * Get the total number of samples recorded
+         */
+        public long getCount() {
+            return count;
+        }
+
+        @Override
+        public String toString() {
+            return "p50=" + p50Millis + "ms p99=" + p99Millis + "ms n=" + count;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2017 CM Telecom B.V.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.cmdisp.authenticator.sdk.models;
+
+import android.support.annotation.NonNull;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pending authentication requests of multiple environments
+ */
+public class PendingAuthenticationRequests {
+    private final List<AuthenticationRequest> requests;
+    private final Map<String, Exception> failures;
+
+    public PendingAuthenticationRequests(List<AuthenticationRequest> requests, Map<String, Exception> failures) {
+        this.requests = requests;
+        this.failures = failures;
+    }
+
+    /**
+     * Get the authentication requests, the first to expire first
+     */
+    @NonNull
+    public List<AuthenticationRequest> getRequests() {
+        return requests;
+    }
+
+    /**
+     * Get the failures by environment id, for environments for which the requests could not be retrieved
+     */
+    @NonNull
+    public Map<String, Exception> getFailures() {
+        return failures;
+    }
+}
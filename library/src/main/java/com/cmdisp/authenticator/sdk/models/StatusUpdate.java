@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2017 CM Telecom B.V.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.cmdisp.authenticator.sdk.models;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Status update of an instant authentication request, part of a batch
+ */
+public class StatusUpdate {
+    private final BaseAuthenticationRequest authReq;
+    private final Environment environment;
+    private final Status status;
+
+    /**
+     * @param authReq     authentication request of type {@link Type#INSTANT INSTANT}
+     * @param environment environment matching the authentication request
+     * @param status      new status, either {@link Status#APPROVED} or {@link Status#DENIED}
+     */
+    public StatusUpdate(@NonNull BaseAuthenticationRequest authReq, @NonNull Environment environment,
+                        @NonNull Status status) {
+        this.authReq = authReq;
+        this.environment = environment;
+        this.status = status;
+    }
+
+    @NonNull
+    public BaseAuthenticationRequest getAuthenticationRequest() {
+        return authReq;
+    }
+
+    @NonNull
+    public Environment getEnvironment() {
+        return environment;
+    }
+
+    @NonNull
+    public Status getStatus() {
+        return status;
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2017 CM Telecom B.V.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.cmdisp.authenticator.sdk.models;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.List;
+
+/**
+ * Results of a batch of {@link StatusUpdate status updates}
+ */
+public class StatusUpdateResults {
+    private final List<Result> results;
+    private final long elapsedMillis;
+
+    public StatusUpdateResults(List<Result> results, long elapsedMillis) {
+        this.results = results;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    /**
+     * Get the results, in the order of the updates
+     */
+    @NonNull
+    public List<Result> getResults() {
+        return results;
+    }
+
+    /**
+     * Get the number of updates which failed
+     */
+    public int getFailureCount() {
+        int count = 0;
+        for (Result result : results) {
+            if (!result.isSuccessful()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Get the time it took to complete all updates in milliseconds
+     */
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * Result of a single status update
+     */
+    public static class Result {
+        private final StatusUpdate update;
+        private final Status status;
+        private final Exception error;
+        private final long latencyMillis;
+
+        public Result(StatusUpdate update, Status status, Exception error, long latencyMillis) {
+            this.update = update;
+            this.status = status;
+            this.error = error;
+            this.latencyMillis = latencyMillis;
+        }
+
+        @NonNull
+        public StatusUpdate getUpdate() {
+            return update;
+        }
+
+        /**
+         * Get the status returned by the API, {@code null} when the update failed
+         */
+        @Nullable
+        public Status getStatus() {
+            return status;
+        }
+
+        /**
+         * Get the reason the update failed, {@code null} when it succeeded
+         */
+        @Nullable
+        public Exception getError() {
+            return error;
+        }
+
+        public boolean isSuccessful() {
+            return error == null;
+        }
+
+        /**
+         * Get the time it took to complete this update in milliseconds
+         */
+        public long getLatencyMillis() {
+            return latencyMillis;
+        }
+    }
+}
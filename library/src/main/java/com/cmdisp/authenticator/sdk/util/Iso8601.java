@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2017 CM Telecom B.V.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.cmdisp.authenticator.sdk.util;
+
+import java.text.ParseException;
+
+/**
+ * Parser for fixed-format ISO-8601 timestamps, e.g. {@code 2017-06-01T12:30:00+02:00}
+ * <p>
+ * Parses {@code yyyy-MM-ddTHH:mm:ss} with optional fractional seconds, followed by {@code Z} or an offset
+ * formatted as {@code +hh:mm}, {@code +hhmm} or {@code +hh}. Stateless, so it's safe to use from any thread.
+ */
+public final class Iso8601 {
+
+    private Iso8601() {
+    }
+
+    /**
+     * Parse the timestamp
+     *
+     * @return the milliseconds since the epoch
+     * @throws ParseException when the timestamp is not in the expected format
+     */
+    public static long parse(String value) throws ParseException {
+        int length = value.length();
+        if (length < 20) {
+            throw new ParseException("Timestamp too short: " + value, length);
+        }
+
+        int year = parseDigits(value, 0, 4);
+        expect(value, 4, '-');
+        int month = parseDigits(value, 5, 2);
+        expect(value, 7, '-');
+        int day = parseDigits(value, 8, 2);
+        expect(value, 10, 'T');
+        int hour = parseDigits(value, 11, 2);
+        expect(value, 13, ':');
+        int minute = parseDigits(value, 14, 2);
+        expect(value, 16, ':');
+        int second = parseDigits(value, 17, 2);
+
+        if (month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)
+                || hour > 23 || minute > 59 || second > 60) {
+            throw new ParseException("Invalid timestamp: " + value, 0);
+        }
+
+        // fractional seconds, digits beyond milliseconds are truncated
+        int pos = 19;
+        int millis = 0;
+        if (value.charAt(pos) == '.' || value.charAt(pos) == ',') {
+            pos++;
+            int start = pos;
+            while (pos < length && isDigit(value.charAt(pos))) {
+                if (pos - start < 3) {
+                    millis = millis * 10 + value.charAt(pos) - '0';
+                }
+                pos++;
+            }
+            if (pos == start) {
+                throw new ParseException("Missing fraction digits: " + value, pos);
+            }
+            for (int i = pos - start; i < 3; i++) {
+                millis *= 10;
+            }
+        }
+
+        int offsetMinutes = parseOffset(value, pos);
+
+        long days = daysFromCivil(year, month, day);
+        long seconds = ((days * 24 + hour) * 60 + minute - offsetMinutes) * 60 + second;
+        return seconds * 1000 + millis;
+    }
+
+    /**
+     * Parse the zone designator at the end of the timestamp
+     *
+     * @return the offset from UTC in minutes
+     */
+    private static int parseOffset(String value, int pos) throws ParseException {
+        int length = value.length();
+        if (pos >= length) {
+            throw new ParseException("Missing time zone: " + value, pos);
+        }
+
+        char sign = value.charAt(pos);
+        if (sign == 'Z' || sign == 'z') {
+            if (pos + 1 != length) {
+                throw new ParseException("Unexpected trailing characters: " + value, pos + 1);
+            }
+            return 0;
+        } else if (sign != '+' && sign != '-') {
+            throw new ParseException("Invalid time zone: " + value, pos);
+        }
+
+        int hours = parseDigits(value, pos + 1, 2);
+        int minutes = 0;
+        int end = pos + 3;
+        if (end < length) {
+            if (value.charAt(end) == ':') {
+                end++;
+            }
+            minutes = parseDigits(value, end, 2);
+            end += 2;
+        }
+        if (end != length) {
+            throw new ParseException("Unexpected trailing characters: " + value, end);
+        }
+        if (hours > 18 || minutes > 59) {
+            throw new ParseException("Invalid time zone: " + value, pos);
+        }
+
+        int offset = hours * 60 + minutes;
+        return sign == '-' ? -offset : offset;
+    }
+
+    private static int parseDigits(String value, int pos, int count) throws ParseException {
+        if (pos + count > value.length()) {
+            throw new ParseException("Timestamp too short: " + value, value.length());
+        }
+
+        int result = 0;
+        for (int i = pos; i < pos + count; i++) {
+            char c = value.charAt(i);
+            if (!isDigit(c)) {
+                throw new ParseException("Expected digit: " + value, i);
+            }
+            result = result * 10 + c - '0';
+        }
+        return result;
+    }
+
+    private static void expect(String value, int pos, char expected) throws ParseException {
+        if (value.charAt(pos) != expected) {
+            throw new ParseException("Expected '" + expected + "': " + value, pos);
+        }
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static int daysInMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+                return leap ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    /**
+     * Days since the epoch for the proleptic Gregorian date
+     * <p>
+     * Based on: <a href="http://howardhinnant.github.io/date_algorithms.html#days_from_civil">days_from_civil</a>
+     */
+    private static long daysFromCivil(int year, int month, int day) {
+        year -= month <= 2 ? 1 : 0;
+        int era = year / 400;
+        int yearOfEra = year - era * 400;
+        int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097L + dayOfEra - 719468;
+    }
+}
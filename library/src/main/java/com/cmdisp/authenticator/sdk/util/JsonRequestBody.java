@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2017 CM Telecom B.V.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.cmdisp.authenticator.sdk.util;
+
+import java.io.IOException;
+import java.util.List;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import okio.Utf8;
+
+/**
+ * JSON object {@link RequestBody} which writes its fields straight into the sink, without building a JSON tree
+ * or string first.
+ * <p>
+ * Supports strings, numbers and booleans, other values are written as their string representation and
+ * {@code null} values are skipped. Numbers are formatted like {@code JSONObject#numberToString(Number)} did,
+ * NaN and infinite values are rejected when the body is built.
+ *
+ * @see JsonRequestBodyBuilder
+ */
+public class JsonRequestBody extends RequestBody {
+    private static final Double NEGATIVE_ZERO = -0d;
+
+    private final String[] names;
+    private final Object[] values;
+    private final long contentLength;
+
+    JsonRequestBody(List<String> names, List<Object> values) {
+        this.names = names.toArray(new String[names.size()]);
+        this.values = values.toArray();
+        this.contentLength = computeLength();
+    }
+
+    @Override
+    public MediaType contentType() {
+        return JsonRequestBodyBuilder.MEDIA_TYPE_JSON;
+    }
+
+    @Override
+    public long contentLength() {
+        return contentLength;
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        sink.writeByte('{');
+        boolean first = true;
+        for (int i = 0; i < names.length; i++) {
+            Object value = values[i];
+            if (value == null) continue;
+
+            if (!first) {
+                sink.writeByte(',');
+            }
+            first = false;
+
+            writeString(sink, names[i]);
+            sink.writeByte(':');
+            if (value instanceof Boolean) {
+                sink.writeUtf8(value.toString());
+            } else if (isIntegral(value)) {
+                sink.writeDecimalLong(((Number) value).longValue());
+            } else if (value instanceof Number) {
+                sink.writeUtf8(numberToString((Number) value));
+            } else {
+                writeString(sink, value.toString());
+            }
+        }
+        sink.writeByte('}');
+    }
+
+    /**
+     * Compute the length of the UTF-8 encoded JSON, mirrors {@link #writeTo(BufferedSink)}
+     */
+    private long computeLength() {
+        long length = 2;
+        boolean first = true;
+        for (int i = 0; i < names.length; i++) {
+            Object value = values[i];
+            if (value == null) continue;
+
+            if (!first) {
+                length++;
+            }
+            first = false;
+
+            length += stringLength(names[i]) + 1;
+            if (value instanceof Boolean) {
+                length += value.toString().length();
+            } else if (isIntegral(value)) {
+                length += decimalLength(((Number) value).longValue());
+            } else if (value instanceof Number) {
+                length += numberToString((Number) value).length();
+            } else {
+                length += stringLength(value.toString());
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Format a non-integral number, whole values are written without fraction
+     *
+     * @throws IllegalArgumentException when the number is NaN or infinite, JSON has no representation for it
+     */
+    private static String numberToString(Number number) {
+        double doubleValue = number.doubleValue();
+        if (Double.isNaN(doubleValue) || Double.isInfinite(doubleValue)) {
+            throw new IllegalArgumentException("Forbidden numeric value: " + number);
+        }
+        if (number.equals(NEGATIVE_ZERO)) {
+            return "-0";
+        }
+
+        long longValue = number.longValue();
+        if (doubleValue == (double) longValue) {
+            return Long.toString(longValue);
+        }
+        return number.toString();
+    }
+
+    private static boolean isIntegral(Object value) {
+        return value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte;
+    }
+
+    /**
+     * Write the string quoted and escaped, runs of characters which need no escaping are written at once
+     */
+    private static void writeString(BufferedSink sink, String value) throws IOException {
+        sink.writeByte('"');
+        int length = value.length();
+        int runStart = 0;
+        for (int i = 0; i < length; i++) {
+            String escaped = escape(value.charAt(i));
+            if (escaped != null) {
+                sink.writeUtf8(value, runStart, i);
+                sink.writeUtf8(escaped);
+                runStart = i + 1;
+            }
+        }
+        sink.writeUtf8(value, runStart, length);
+        sink.writeByte('"');
+    }
+
+    private static long stringLength(String value) {
+        long size = 2;
+        int length = value.length();
+        int runStart = 0;
+        for (int i = 0; i < length; i++) {
+            String escaped = escape(value.charAt(i));
+            if (escaped != null) {
+                size += Utf8.size(value, runStart, i) + escaped.length();
+                runStart = i + 1;
+            }
+        }
+        return size + Utf8.size(value, runStart, length);
+    }
+
+    private static String escape(char c) {
+        switch (c) {
+            case '"':
+                return "\\\"";
+            case '\\':
+                return "\\\\";
+            case '\n':
+                return "\\n";
+            case '\r':
+                return "\\r";
+            case '\t':
+                return "\\t";
+            case '\b':
+                return "\\b";
+            case '\f':
+                return "\\f";
+            default:
+                return c < 0x20 ? String.format("\\u%04x", (int) c) : null;
+        }
+    }
+
+    private static int decimalLength(long value) {
+        if (value == Long.MIN_VALUE) {
+            return 20;
+        }
+
+        int length = 1;
+        if (value < 0) {
+            length++;
+            value = -value;
+        }
+        while (value >= 10) {
+            length++;
+            value /= 10;
+        }
+        return length;
+    }
+}
@@ -22,32 +22,47 @@
 
 package com.cmdisp.authenticator.sdk.util;
 
-import org.json.JSONObject;
-
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.List;
 
 import okhttp3.MediaType;
 import okhttp3.RequestBody;
 
 /**
  * Builder to construct a JSON {@link RequestBody}
+ *
+ * @see JsonRequestBody
  */
-public class JsonRequestBodyBuilder extends HashMap<String, Object> {
+public class JsonRequestBodyBuilder {
     public static final MediaType MEDIA_TYPE_JSON = MediaType.parse("application/json");
 
+    private final List<String> names = new ArrayList<>();
+    private final List<Object> values = new ArrayList<>();
+
     /**
-     * Add an entry
+     * Add an entry, replacing the value of an existing entry with the same key
      */
     public JsonRequestBodyBuilder add(String key, Object value) {
-        put(key, value);
+        if (key == null) {
+            throw new NullPointerException("key == null");
+        }
+
+        int index = names.indexOf(key);
+        if (index >= 0) {
+            values.set(index, value);
+        } else {
+            names.add(key);
+            values.add(value);
+        }
         return this;
     }
 
     /**
      * Construct the {@link RequestBody}
+     *
+     * @throws IllegalArgumentException when a value is a NaN or infinite number
      */
     public RequestBody build() {
-        JSONObject jsonObject = JsonUtil.mapToJson(this);
-        return RequestBody.create(MEDIA_TYPE_JSON, jsonObject.toString());
+        return new JsonRequestBody(names, values);
     }
 }
@@ -22,143 +22,99 @@
 
 package com.cmdisp.authenticator.sdk.util;
 
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
+import android.util.JsonReader;
+import android.util.JsonToken;
+import android.util.Log;
 
-import java.lang.reflect.Array;
-import java.util.Collection;
-import java.util.Map;
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.Date;
 
 /**
- * Backport {@link JSONObject} and {@link JSONArray} features added in API 19
- * <p>
- * Based on: <a href="http://stackoverflow.com/a/22912023">StackOverflow answer</a>
+ * Helpers to read optional values using a {@link JsonReader}
  */
 public class JsonUtil {
+    private static final String TAG = JsonUtil.class.getSimpleName();
 
     private JsonUtil() {
     }
 
     /**
-     * Convert Map to JSONObject recursively
+     * Read a string, numbers and booleans are returned as string
+     *
+     * @return the string or {@code null} when the value is null, an object or an array
      */
-    public static JSONObject mapToJson(Map<?, ?> data) {
-        JSONObject object = new JSONObject();
-
-        for (Map.Entry<?, ?> entry : data.entrySet()) {
-            /*
-             * Deviate from the original by checking that keys are non-null and
-             * of the proper type. (We still defer validating the values).
-             */
-            String key = (String) entry.getKey();
-            if (key == null) {
-                throw new NullPointerException("key == null");
-            }
-            try {
-                object.put(key, wrap(entry.getValue()));
-            } catch (JSONException e) {
-                e.printStackTrace();
-            }
-        }
-
-        return object;
-    }
-
-    /**
-     * Convert Collection to JSONArray recursively
-     */
-    public static JSONArray collectionToJson(Collection data) {
-        JSONArray jsonArray = new JSONArray();
-        if (data != null) {
-            for (Object aData : data) {
-                jsonArray.put(wrap(aData));
-            }
+    public static String nextString(JsonReader reader) throws IOException {
+        switch (reader.peek()) {
+            case STRING:
+            case NUMBER:
+                return reader.nextString();
+            case BOOLEAN:
+                return String.valueOf(reader.nextBoolean());
+            default:
+                reader.skipValue();
+                return null;
         }
-        return jsonArray;
     }
 
     /**
-     * Convert array to JSONArray recursively
+     * Read a double, numeric strings are parsed
+     *
+     * @return the double or {@code null} when the value is null or not numeric
      */
-    public static JSONArray arrayToJson(Object data) throws JSONException {
-        if (!data.getClass().isArray()) {
-            throw new JSONException("Not a primitive data: " + data.getClass());
-        }
-        final int length = Array.getLength(data);
-        JSONArray jsonArray = new JSONArray();
-        for (int i = 0; i < length; ++i) {
-            jsonArray.put(wrap(Array.get(data, i)));
-        }
-
-        return jsonArray;
-    }
-
-    private static Object wrap(Object o) {
-        if (o == null) {
+    public static Double nextDouble(JsonReader reader) throws IOException {
+        JsonToken token = reader.peek();
+        if (token != JsonToken.NUMBER && token != JsonToken.STRING) {
+            reader.skipValue();
             return null;
         }
-        if (o instanceof JSONArray || o instanceof JSONObject) {
-            return o;
-        }
 
         try {
-            if (o instanceof Collection) {
-                return collectionToJson((Collection) o);
-            }
-            if (o.getClass().isArray()) {
-                return arrayToJson(o);
-            }
-            if (o instanceof Map) {
-                return mapToJson((Map) o);
-            }
-            if (o instanceof Boolean ||
-                    o instanceof Byte ||
-                    o instanceof Character ||
-                    o instanceof Double ||
-                    o instanceof Float ||
-                    o instanceof Integer ||
-                    o instanceof Long ||
-                    o instanceof Short ||
-                    o instanceof String) {
-                return o;
-            } else {
-                return o.toString();
-            }
-        } catch (Exception ignored) {
+            return Double.parseDouble(reader.nextString());
+        } catch (NumberFormatException e) {
             return null;
         }
     }
 
-    public static String optString(JSONObject json, String key) {
-        return optString(json, key, null);
+    /**
+     * Read an int, numeric strings are parsed and decimals are truncated
+     *
+     * @return the int or {@code null} when the value is null or not numeric
+     */
+    public static Integer nextInteger(JsonReader reader) throws IOException {
+        Double value = nextDouble(reader);
+        return value == null ? null : value.intValue();
     }
 
-    public static String optString(JSONObject json, String key, String fallback) {
-        if (isNull(json, key)) {
-            return fallback;
-        } else {
-            return json.optString(key, fallback);
+    /**
+     * Read a boolean
+     *
+     * @return the boolean or {@code null} when the value is not a boolean
+     */
+    public static Boolean nextBoolean(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BOOLEAN) {
+            reader.skipValue();
+            return null;
         }
+        return reader.nextBoolean();
     }
 
-    public static Double optDouble(JSONObject json, String key) {
-        return optDouble(json, key, null);
-    }
-
-    public static Double optDouble(JSONObject json, String key, Double fallback) {
-        if (isNull(json, key)) {
-            return fallback;
-        } else {
-            try {
-                return json.getDouble(key);
-            } catch (JSONException e) {
-                return fallback;
-            }
+    /**
+     * Read an ISO 8601 date
+     *
+     * @return the date or {@code null} when the value is not a valid date
+     */
+    public static Date nextDate(JsonReader reader) throws IOException {
+        String value = nextString(reader);
+        if (value == null) {
+            return null;
         }
-    }
 
-    public static boolean isNull(JSONObject json, String key) {
-        return json == null || json.isNull(key);
+        try {
+            return new Date(Iso8601.parse(value));
+        } catch (ParseException e) {
+            Log.e(TAG, "Could not parse date: " + value, e);
+            return null;
+        }
     }
 }
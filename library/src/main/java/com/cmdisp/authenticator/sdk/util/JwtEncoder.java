@@ -0,0 +1,298 @@
+/*
+ * Copyright (c) 2017 CM Telecom B.V.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.cmdisp.authenticator.sdk.util;
+
+import java.nio.charset.Charset;
+import java.security.GeneralSecurityException;
+
+import javax.crypto.Mac;
+
+/**
+ * Encodes HS256 signed JSON Web Tokens.
+ * <p>
+ * The claims, the token and the signature are written straight into byte buffers which are reused by the thread,
+ * so the only allocation per token is the resulting String. Obtain an encoder using {@link #begin()}, add the
+ * claims and finish with {@link #sign(String)}.
+ */
+public final class JwtEncoder {
+    private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+
+    /** URL-safe base64-encoded header: {"alg":"HS256"} */
+    private static final byte[] HEADER = "eyJhbGciOiJIUzI1NiJ9".getBytes(ISO_8859_1);
+    private static final byte[] BASE64_URL =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".getBytes(ISO_8859_1);
+    private static final byte[] HEX = "0123456789abcdef".getBytes(ISO_8859_1);
+
+    private static final ThreadLocal<JwtEncoder> ENCODERS = new ThreadLocal<JwtEncoder>() {
+        @Override
+        protected JwtEncoder initialValue() {
+            return new JwtEncoder();
+        }
+    };
+
+    private byte[] claims = new byte[256];
+    private int claimsLength;
+    private byte[] token = new byte[512];
+    private int tokenLength;
+    private final byte[] signature = new byte[32];
+
+    private JwtEncoder() {
+    }
+
+    /**
+     * Start a new token, the returned encoder may only be used by the calling thread until it's signed
+     */
+    public static JwtEncoder begin() {
+        JwtEncoder encoder = ENCODERS.get();
+        encoder.claimsLength = 0;
+        encoder.writeClaimsByte('{');
+        return encoder;
+    }
+
+    /**
+     * Add a numeric claim
+     */
+    public JwtEncoder claim(String name, long value) {
+        writeName(name);
+        writeClaimsLong(value);
+        return this;
+    }
+
+    /**
+     * Add a string claim, {@code null} values are skipped
+     */
+    public JwtEncoder claim(String name, String value) {
+        if (value != null) {
+            writeName(name);
+            writeClaimsString(value);
+        }
+        return this;
+    }
+
+    /**
+     * Add a claim of any type, numbers and booleans are written as such, anything else as string.
+     * {@code null} values are skipped.
+     *
+     * @throws IllegalArgumentException when the value is a NaN or infinite, JSON has no representation for it
+     */
+    public JwtEncoder claim(String name, Object value) {
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return claim(name, ((Number) value).longValue());
+        } else if (!isFinite(value)) {
+            throw new IllegalArgumentException("Claim " + name + " is not a finite number: " + value);
+        } else if (value instanceof Number || value instanceof Boolean) {
+            writeName(name);
+            writeClaimsAscii(value.toString());
+            return this;
+        } else {
+            return claim(name, value == null ? null : value.toString());
+        }
+    }
+
+    private static boolean isFinite(Object value) {
+        if (value instanceof Double || value instanceof Float) {
+            double d = ((Number) value).doubleValue();
+            return !Double.isNaN(d) && !Double.isInfinite(d);
+        }
+        return true;
+    }
+
+    /**
+     * Add a claim containing the data as hex-encoded string
+     */
+    public JwtEncoder claimHex(String name, byte[] data) {
+        writeName(name);
+        ensureClaimsCapacity((data.length << 1) + 2);
+        claims[claimsLength++] = '"';
+        for (byte b : data) {
+            claims[claimsLength++] = HEX[(b & 0xF0) >>> 4];
+            claims[claimsLength++] = HEX[b & 0x0F];
+        }
+        claims[claimsLength++] = '"';
+        return this;
+    }
+
+    /**
+     * Finish the token by signing it using HMAC-SHA256
+     *
+     * @param secret secret used to create signature
+     * @return the encoded token
+     */
+    public String sign(String secret) throws GeneralSecurityException {
+        writeClaimsByte('}');
+
+        tokenLength = 0;
+        ensureTokenCapacity(HEADER.length + 1 + base64Length(claimsLength) + 1 + base64Length(signature.length));
+        System.arraycopy(HEADER, 0, token, 0, HEADER.length);
+        tokenLength = HEADER.length;
+        token[tokenLength++] = '.';
+        writeTokenBase64(claims, claimsLength);
+
+        Mac mac = SecurityUtil.getHmacSHA256(secret);
+        mac.update(token, 0, tokenLength);
+        mac.doFinal(signature, 0);
+
+        token[tokenLength++] = '.';
+        writeTokenBase64(signature, signature.length);
+
+        return new String(token, 0, tokenLength, ISO_8859_1);
+    }
+
+    private void writeName(String name) {
+        if (claimsLength > 1) {
+            writeClaimsByte(',');
+        }
+        writeClaimsString(name);
+        writeClaimsByte(':');
+    }
+
+    private void writeClaimsByte(int b) {
+        ensureClaimsCapacity(1);
+        claims[claimsLength++] = (byte) b;
+    }
+
+    private void writeClaimsLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            writeClaimsAscii(Long.toString(value));
+            return;
+        }
+
+        ensureClaimsCapacity(20);
+        if (value < 0) {
+            claims[claimsLength++] = '-';
+            value = -value;
+        }
+
+        // write the digits in reverse order, then swap them around
+        int start = claimsLength;
+        do {
+            claims[claimsLength++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        for (int i = start, j = claimsLength - 1; i < j; i++, j--) {
+            byte tmp = claims[i];
+            claims[i] = claims[j];
+            claims[j] = tmp;
+        }
+    }
+
+    private void writeClaimsAscii(String value) {
+        int length = value.length();
+        ensureClaimsCapacity(length);
+        for (int i = 0; i < length; i++) {
+            claims[claimsLength++] = (byte) value.charAt(i);
+        }
+    }
+
+    /**
+     * Write the string as quoted and escaped JSON string, encoded in UTF-8
+     */
+    private void writeClaimsString(String value) {
+        int length = value.length();
+        // worst case every char takes 6 bytes (either escaped or as part of a surrogate pair)
+        ensureClaimsCapacity(length * 6 + 2);
+
+        byte[] out = claims;
+        int pos = claimsLength;
+        out[pos++] = '"';
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out[pos++] = '\\';
+                out[pos++] = (byte) c;
+            } else if (c < 0x20) {
+                out[pos++] = '\\';
+                out[pos++] = 'u';
+                out[pos++] = '0';
+                out[pos++] = '0';
+                out[pos++] = HEX[c >>> 4];
+                out[pos++] = HEX[c & 0xF];
+            } else if (c < 0x80) {
+                out[pos++] = (byte) c;
+            } else if (c < 0x800) {
+                out[pos++] = (byte) (0xC0 | c >>> 6);
+                out[pos++] = (byte) (0x80 | c & 0x3F);
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                out[pos++] = (byte) (0xF0 | codePoint >>> 18);
+                out[pos++] = (byte) (0x80 | codePoint >>> 12 & 0x3F);
+                out[pos++] = (byte) (0x80 | codePoint >>> 6 & 0x3F);
+                out[pos++] = (byte) (0x80 | codePoint & 0x3F);
+            } else if (c >= '\uD800' && c <= '\uDFFF') {
+                // unpaired surrogate
+                out[pos++] = '?';
+            } else {
+                out[pos++] = (byte) (0xE0 | c >>> 12);
+                out[pos++] = (byte) (0x80 | c >>> 6 & 0x3F);
+                out[pos++] = (byte) (0x80 | c & 0x3F);
+            }
+        }
+        out[pos++] = '"';
+        claimsLength = pos;
+    }
+
+    /**
+     * Append the data to the token as URL-safe base64 without padding
+     */
+    private void writeTokenBase64(byte[] data, int length) {
+        byte[] out = token;
+        int pos = tokenLength;
+        int i = 0;
+        for (int end = length - length % 3; i < end; i += 3) {
+            int bits = (data[i] & 0xFF) << 16 | (data[i + 1] & 0xFF) << 8 | data[i + 2] & 0xFF;
+            out[pos++] = BASE64_URL[bits >>> 18 & 0x3F];
+            out[pos++] = BASE64_URL[bits >>> 12 & 0x3F];
+            out[pos++] = BASE64_URL[bits >>> 6 & 0x3F];
+            out[pos++] = BASE64_URL[bits & 0x3F];
+        }
+        if (length - i == 1) {
+            int bits = (data[i] & 0xFF) << 16;
+            out[pos++] = BASE64_URL[bits >>> 18 & 0x3F];
+            out[pos++] = BASE64_URL[bits >>> 12 & 0x3F];
+        } else if (length - i == 2) {
+            int bits = (data[i] & 0xFF) << 16 | (data[i + 1] & 0xFF) << 8;
+            out[pos++] = BASE64_URL[bits >>> 18 & 0x3F];
+            out[pos++] = BASE64_URL[bits >>> 12 & 0x3F];
+            out[pos++] = BASE64_URL[bits >>> 6 & 0x3F];
+        }
+        tokenLength = pos;
+    }
+
+    private static int base64Length(int length) {
+        return (length * 4 + 2) / 3;
+    }
+
+    private void ensureClaimsCapacity(int extra) {
+        if (claimsLength + extra > claims.length) {
+            byte[] grown = new byte[Math.max(claims.length << 1, claimsLength + extra)];
+            System.arraycopy(claims, 0, grown, 0, claimsLength);
+            claims = grown;
+        }
+    }
+
+    private void ensureTokenCapacity(int capacity) {
+        if (capacity > token.length) {
+            token = new byte[Math.max(token.length << 1, capacity)];
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2017 CM Telecom B.V.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.cmdisp.authenticator.sdk.util;
+
+import java.nio.charset.Charset;
+import java.security.GeneralSecurityException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Least recently used cache of keyed {@link Mac} instances.
+ * <p>
+ * Every secret gets one initialized prototype, with the key schedule (the inner and outer pad state) already
+ * computed. Callers get a clone of it, so creating a MAC for a known secret does no provider lookup or key setup.
+ */
+public class MacCache {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final String algorithm;
+    private final Map<String, Mac> prototypes;
+    /** Guarded by {@link #prototypes} */
+    private int maxSize;
+
+    /**
+     * @param algorithm MAC algorithm, e.g. HmacSHA256
+     * @param maxSize   initial maximum number of secrets to keep, the least recently used secret is evicted first
+     */
+    public MacCache(String algorithm, int maxSize) {
+        this.algorithm = algorithm;
+        this.maxSize = maxSize;
+        this.prototypes = new LinkedHashMap<String, Mac>(maxSize, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Mac> eldest) {
+                return size() > MacCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * Grow the cache so it keeps at least the given number of secrets, it never shrinks
+     */
+    public void ensureCapacity(int size) {
+        synchronized (prototypes) {
+            maxSize = Math.max(maxSize, size);
+        }
+    }
+
+    /**
+     * Get a MAC initialized with the secret, ready to use by the calling thread
+     */
+    public Mac get(String secret) throws GeneralSecurityException {
+        synchronized (prototypes) {
+            Mac prototype = prototypes.get(secret);
+            if (prototype == null) {
+                prototype = Mac.getInstance(algorithm);
+                prototype.init(new SecretKeySpec(secret.getBytes(UTF_8), algorithm));
+                prototypes.put(secret, prototype);
+            }
+
+            try {
+                return (Mac) prototype.clone();
+            } catch (CloneNotSupportedException e) {
+                // the provider doesn't support cloning, fall back to a new instance with the same key
+                Mac mac = Mac.getInstance(algorithm);
+                mac.init(new SecretKeySpec(secret.getBytes(UTF_8), algorithm));
+                return mac;
+            }
+        }
+    }
+}
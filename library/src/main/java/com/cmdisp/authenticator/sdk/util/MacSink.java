@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2017 CM Telecom B.V.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.cmdisp.authenticator.sdk.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import javax.crypto.Mac;
+
+import okio.Buffer;
+import okio.ForwardingSink;
+import okio.Sink;
+
+/**
+ * Sink which computes the MAC of everything written through it.
+ * <p>
+ * The bytes are fed to the {@link Mac} straight from the segments of the written buffer, without copying.
+ */
+public class MacSink extends ForwardingSink {
+    private final Mac mac;
+    private final OutputStream macStream = new OutputStream() {
+        @Override
+        public void write(int b) {
+            mac.update((byte) b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            mac.update(b, off, len);
+        }
+    };
+
+    /**
+     * @param delegate sink to forward the data to
+     * @param mac      initialized MAC
+     */
+    public MacSink(Sink delegate, Mac mac) {
+        super(delegate);
+        this.mac = mac;
+    }
+
+    @Override
+    public void write(Buffer source, long byteCount) throws IOException {
+        source.copyTo(macStream, 0, byteCount);
+        super.write(source, byteCount);
+    }
+
+    /**
+     * Finish the MAC over all data written so far
+     */
+    public byte[] doFinal() {
+        return mac.doFinal();
+    }
+}
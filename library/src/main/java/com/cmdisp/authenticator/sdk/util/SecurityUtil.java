@@ -22,86 +22,41 @@
 
 package com.cmdisp.authenticator.sdk.util;
 
-import android.util.Base64;
-import android.util.Log;
-
-import org.json.JSONObject;
-
-import java.nio.charset.Charset;
-import java.security.InvalidKeyException;
-import java.security.Key;
-import java.security.NoSuchAlgorithmException;
+import java.security.GeneralSecurityException;
 
 import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
+
+import okio.Sink;
 
 public class SecurityUtil {
-    private static final String TAG = SecurityUtil.class.getSimpleName();
-    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    /** Keep the keys of a handful of environments ready, grown by {@link #ensureHmacCapacity(int)} */
+    private static final MacCache HMAC_SHA256 = new MacCache("HmacSHA256", 16);
 
     private SecurityUtil() {
     }
 
     /**
-     * Create JSON Web Token
-     *
-     * @param jsonHeader  JSON to use as header content
-     * @param jsonPayload JSON to use as payload content
-     * @param secret      secret used to create signature
-     */
-    public static String createJWT(JSONObject jsonHeader, JSONObject jsonPayload, String secret) {
-        String encodedHeader = base64encode(jsonHeader.toString());
-        String encodedPayload = base64encode(jsonPayload.toString());
-
-        byte[] signatureData = (encodedHeader + "." + encodedPayload).getBytes();
-        byte[] signature = hmacSHA256(signatureData, secret);
-        String encodedSignature = base64encode(signature);
-
-        return encodedHeader + '.' + encodedPayload + '.' + encodedSignature;
-    }
-
-    /**
-     * Create URL-safe base64-encoded string
+     * Create a sink which computes the RFC 2104-compliant HMAC signature of everything written to it
      *
-     * @param input String to encode
-     * @see #base64encode(byte[])
+     * @param sink   The sink to forward the data to
+     * @param secret The signing key
      */
-    private static String base64encode(String input) {
-        return base64encode(input.getBytes(UTF_8));
+    public static MacSink hmacSHA256(Sink sink, String secret) throws GeneralSecurityException {
+        if (secret == null) throw new IllegalArgumentException("Missing secret to calculate mac");
+        return new MacSink(sink, getHmacSHA256(secret));
     }
 
     /**
-     * Create URL-safe base64-encoded string
-     *
-     * @param bytes bytes to encode
+     * Keep the keys of at least the given number of secrets ready, e.g. one per environment of the device
      */
-    private static String base64encode(byte[] bytes) {
-        int flags = Base64.URL_SAFE | Base64.NO_PADDING | Base64.NO_WRAP;
-        return Base64.encodeToString(bytes, flags);
+    public static void ensureHmacCapacity(int secrets) {
+        HMAC_SHA256.ensureCapacity(secrets);
     }
 
     /**
-     * Compute RFC 2104-compliant HMAC signature
-     *
-     * @param data   The data to be signed
-     * @param secret The signing key
-     * @return The RFC 2104-compliant HMAC signature
+     * Get a HMAC-SHA256 instance initialized with the secret
      */
-    public static byte[] hmacSHA256(byte[] data, String secret) {
-        if (data == null) throw new IllegalArgumentException("Missing data to calculate the new hash");
-        if (secret == null) throw new IllegalArgumentException("Missing secret to calculate mac");
-        String macType = "HmacSHA256";
-
-        try {
-            Key key = new SecretKeySpec(secret.getBytes(), macType);
-            Mac mac = Mac.getInstance(macType);
-            mac.init(key);
-
-            return mac.doFinal(data);
-        } catch (NoSuchAlgorithmException | InvalidKeyException e) {
-            Log.e(TAG, "Failed to generate HMAC-SHA256", e);
-        }
-
-        return null;
+    static Mac getHmacSHA256(String secret) throws GeneralSecurityException {
+        return HMAC_SHA256.get(secret);
     }
 }
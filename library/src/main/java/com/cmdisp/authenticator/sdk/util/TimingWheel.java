@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2017 CM Telecom B.V.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.cmdisp.authenticator.sdk.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hashed timing wheel to run tasks at a deadline with O(1) scheduling and cancellation
+ * <p>
+ * Tasks run on the single thread of the wheel, never before their deadline and at most one tick after it. Ticks
+ * are measured from the monotonic clock since the wheel was created, so they don't depend on when the ticker
+ * started. The wheel only ticks while tasks are pending.
+ */
+public final class TimingWheel {
+    private final long tickMillis;
+    private final Timeout[] buckets;
+    private final int mask;
+    private final long startNanos = System.nanoTime();
+    private final ScheduledExecutorService executor;
+
+    /** Last tick of which the bucket was drained */
+    private long tick;
+    private int pending;
+    private ScheduledFuture<?> ticker;
+
+    /**
+     * @param tickMillis duration of a tick, the precision of the deadlines
+     * @param wheelSize  number of buckets, rounded up to a power of two
+     * @param threadName name of the thread to run the tasks on
+     */
+    public TimingWheel(long tickMillis, int wheelSize, String threadName) {
+        int size = Integer.highestOneBit(Math.max(wheelSize, 1) * 2 - 1);
+        this.tickMillis = tickMillis;
+        this.buckets = new Timeout[size];
+        this.mask = size - 1;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, threadName);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Run the task at the deadline
+     *
+     * @param deadline time in milliseconds since the epoch, see {@link System#currentTimeMillis()}
+     * @return the handle to cancel the task
+     */
+    public synchronized Timeout schedule(Runnable task, long deadline) {
+        long now = elapsedMillis();
+        // now is truncated, round the deadline up so the fraction of a millisecond lost doesn't make it early
+        long elapsedDeadline = now + Math.max(0, deadline - System.currentTimeMillis()) + 1;
+
+        if (pending == 0) {
+            // the buckets are empty, skip the ticks which passed while idle
+            tick = now / tickMillis;
+        }
+
+        // the first tick starting at or after the deadline, deadlines which passed run at the next tick
+        long targetTick = Math.max(tick + 1, (elapsedDeadline + tickMillis - 1) / tickMillis);
+        Timeout timeout = new Timeout(this, task, elapsedDeadline);
+        link(timeout, targetTick);
+
+        if (pending++ == 0) {
+            long initialDelay = (tick + 1) * tickMillis - now;
+            ticker = executor.scheduleAtFixedRate(this::advance, initialDelay, tickMillis, TimeUnit.MILLISECONDS);
+        }
+        return timeout;
+    }
+
+    private synchronized boolean cancel(Timeout timeout) {
+        if (timeout.wheel == null) {
+            return false;
+        }
+        unlink(timeout);
+        timeout.wheel = null;
+        if (--pending == 0) {
+            ticker.cancel(false);
+            ticker = null;
+        }
+        return true;
+    }
+
+    private void link(Timeout timeout, long targetTick) {
+        timeout.targetTick = targetTick;
+        int index = (int) (targetTick & mask);
+        timeout.prev = null;
+        timeout.next = buckets[index];
+        if (timeout.next != null) {
+            timeout.next.prev = timeout;
+        }
+        buckets[index] = timeout;
+    }
+
+    private void unlink(Timeout timeout) {
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            buckets[(int) (timeout.targetTick & mask)] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+    }
+
+    /**
+     * Drain the buckets of the ticks which passed and run the tasks which are due
+     */
+    private void advance() {
+        List<Runnable> due = new ArrayList<>();
+        synchronized (this) {
+            long now = elapsedMillis();
+            long currentTick = now / tickMillis;
+
+            // a late run catches up on the ticks it missed, visiting every bucket at most once
+            long last = Math.min(currentTick, tick + buckets.length);
+            List<Timeout> early = new ArrayList<>();
+            for (long t = tick + 1; t <= last; t++) {
+                Timeout timeout = buckets[(int) (t & mask)];
+                while (timeout != null) {
+                    Timeout next = timeout.next;
+                    // timeouts more than a round away stay in the bucket
+                    if (timeout.targetTick <= currentTick) {
+                        unlink(timeout);
+                        if (timeout.deadline <= now) {
+                            timeout.wheel = null;
+                            due.add(timeout.task);
+                        } else {
+                            early.add(timeout);
+                        }
+                    }
+                    timeout = next;
+                }
+            }
+            tick = Math.max(tick, currentTick);
+
+            // never run before the deadline, move the timeouts which aren't due yet to the next tick
+            for (Timeout timeout : early) {
+                link(timeout, tick + 1);
+            }
+
+            pending -= due.size();
+            if (pending == 0 && ticker != null) {
+                ticker.cancel(false);
+                ticker = null;
+            }
+        }
+
+        for (Runnable task : due) {
+            task.run();
+        }
+    }
+
+    private long elapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Handle to a scheduled task
+     */
+    public static final class Timeout {
+        private TimingWheel wheel;
+        private final Runnable task;
+        /** Deadline in milliseconds on the clock of the wheel */
+        private final long deadline;
+        private long targetTick;
+        private Timeout prev;
+        private Timeout next;
+
+        private Timeout(TimingWheel wheel, Runnable task, long deadline) {
+            this.wheel = wheel;
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Cancel the task
+         *
+         * @return {@code false} when the task already ran or was cancelled
+         */
+        public boolean cancel() {
+            TimingWheel wheel = this.wheel;
+            return wheel != null && wheel.cancel(this);
+        }
+    }
+}
@@ -0,0 +1,264 @@
+/*
+ * Copyright (c) 2017 CM Telecom B.V.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.cmdisp.authenticator.sdk.api;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLHandshakeException;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RetrierTest {
+    private static final Request REQUEST = new Request.Builder().url("https://api.example.com/device").build();
+    /** Margin for the scheduling delays of the test machine */
+    private static final long TIMEOUT = 5000;
+
+    private final Queue<Object> outcomes = new ArrayDeque<>();
+    private int attempts;
+
+    @Test
+    public void retriesUntilSuccess() throws InterruptedException {
+        enqueueResponses(503, 500, 200);
+        Retrier retrier = createRetrier(3);
+
+        Result result = call(retrier, RetryPolicy.SAFE);
+
+        assertEquals(200, result.code);
+        assertEquals(3, attempts);
+        assertEquals(3.0, retrier.getAttemptsPerCall(), 0);
+    }
+
+    @Test
+    public void stopsAfterMaxRetries() throws InterruptedException {
+        enqueueResponses(503, 503, 503, 200);
+        Retrier retrier = createRetrier(2);
+
+        Result result = call(retrier, RetryPolicy.SAFE);
+
+        assertEquals(503, result.code);
+        assertEquals(3, attempts);
+    }
+
+    @Test
+    public void doesNotRetryWhenPolicyForbids() throws InterruptedException {
+        enqueueResponses(503, 200);
+        assertEquals(503, call(createRetrier(3), RetryPolicy.NONE).code);
+        assertEquals(1, attempts);
+
+        outcomes.clear();
+        attempts = 0;
+        enqueueResponses(404, 200);
+        assertEquals(404, call(createRetrier(3), RetryPolicy.SAFE).code);
+        assertEquals(1, attempts);
+    }
+
+    @Test
+    public void retriesTransientFailures() throws InterruptedException {
+        outcomes.add(new SocketTimeoutException());
+        enqueueResponses(200);
+
+        assertEquals(200, call(createRetrier(3), RetryPolicy.SAFE).code);
+        assertEquals(2, attempts);
+    }
+
+    @Test
+    public void doesNotRetryTlsFailures() throws InterruptedException {
+        outcomes.add(new SSLHandshakeException("bad certificate"));
+        enqueueResponses(200);
+
+        Result result = call(createRetrier(3), RetryPolicy.SAFE);
+
+        assertTrue(result.failure instanceof SSLHandshakeException);
+        assertEquals(1, attempts);
+    }
+
+    @Test
+    public void budgetLimitsRetries() throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            enqueueResponses(503);
+        }
+        Retrier retrier = createRetrier(100);
+
+        Result result = call(retrier, RetryPolicy.SAFE);
+
+        // the full budget of 10 tokens allows 10 retries
+        assertEquals(503, result.code);
+        assertEquals(11, attempts);
+        assertEquals(1, retrier.getBudgetExhaustedCount());
+    }
+
+    @Test
+    public void waitsForRetryAfter() throws InterruptedException {
+        outcomes.add(response(503, "1"));
+        enqueueResponses(200);
+
+        long start = System.nanoTime();
+        Result result = call(createRetrier(3), RetryPolicy.SAFE);
+
+        assertEquals(200, result.code);
+        assertEquals(2, attempts);
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 1000);
+    }
+
+    @Test
+    public void doesNotRetryWhenRetryAfterTooLong() throws InterruptedException {
+        outcomes.add(response(429, "60"));
+        enqueueResponses(200);
+
+        assertEquals(429, call(createRetrier(3), RetryPolicy.SAFE).code);
+        assertEquals(1, attempts);
+    }
+
+    @Test
+    public void parsesRetryAfter() {
+        assertEquals(0, Retrier.getRetryAfter(response(503, null)));
+        assertEquals(2000, Retrier.getRetryAfter(response(503, " 2 ")));
+        assertEquals(0, Retrier.getRetryAfter(response(503, "-5")));
+        assertEquals(-1, Retrier.getRetryAfter(response(503, "6")));
+        assertEquals(-1, Retrier.getRetryAfter(response(503, "Fri, 31 Dec 1999 23:59:59 GMT")));
+    }
+
+    @Test
+    public void backoffGrowsExponentiallyUpToMaximum() {
+        Retrier retrier = new Retrier(null, 3, new FixedRandom(0.5));
+
+        assertEquals(125, retrier.getBackoff(0));
+        assertEquals(250, retrier.getBackoff(1));
+        assertEquals(500, retrier.getBackoff(2));
+        assertEquals(2500, retrier.getBackoff(5));
+        assertEquals(2500, retrier.getBackoff(100));
+    }
+
+    @Test
+    public void backoffIsJitteredBelowBound() {
+        Retrier retrier = new Retrier(null, 3, new Random());
+
+        for (int retry = 0; retry < 8; retry++) {
+            long bound = Math.min(5000, 250L << retry);
+            for (int i = 0; i < 100; i++) {
+                long backoff = retrier.getBackoff(retry);
+                assertTrue(backoff + " out of range for retry " + retry, backoff >= 0 && backoff < bound);
+            }
+        }
+    }
+
+    /**
+     * Create a retrier with a client answering the outcomes in order and no backoff delay
+     */
+    private Retrier createRetrier(int maxRetries) {
+        OkHttpClient client = new OkHttpClient.Builder()
+                .addInterceptor(chain -> {
+                    Object outcome;
+                    synchronized (outcomes) {
+                        attempts++;
+                        outcome = outcomes.remove();
+                    }
+                    if (outcome instanceof IOException) {
+                        throw (IOException) outcome;
+                    }
+                    return ((Response) outcome).newBuilder().request(chain.request()).build();
+                })
+                .build();
+        return new Retrier(new RequestScheduler(client), maxRetries, new FixedRandom(0));
+    }
+
+    private void enqueueResponses(int... codes) {
+        for (int code : codes) {
+            outcomes.add(response(code, null));
+        }
+    }
+
+    private static Response response(int code, String retryAfter) {
+        Response.Builder builder = new Response.Builder()
+                .request(REQUEST)
+                .protocol(Protocol.HTTP_1_1)
+                .code(code)
+                .message("HTTP " + code)
+                .body(ResponseBody.create(MediaType.parse("text/plain"), ""));
+        if (retryAfter != null) {
+            builder.header("Retry-After", retryAfter);
+        }
+        return builder.build();
+    }
+
+    private static Result call(Retrier retrier, RetryPolicy policy) throws InterruptedException {
+        Result result = new Result();
+        retrier.enqueue(REQUEST, RequestScheduler.Priority.INTERACTIVE, policy, result);
+        assertTrue("call not completed", result.done.await(TIMEOUT, TimeUnit.MILLISECONDS));
+        return result;
+    }
+
+    private static final class Result implements Callback {
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile int code;
+        private volatile IOException failure;
+
+        @Override
+        public void onFailure(Call call, IOException e) {
+            failure = e;
+            done.countDown();
+        }
+
+        @Override
+        public void onResponse(Call call, Response response) {
+            code = response.code();
+            response.close();
+            done.countDown();
+        }
+    }
+
+    /**
+     * Random which always returns the same double
+     */
+    private static final class FixedRandom extends Random {
+        private final double value;
+
+        private FixedRandom(double value) {
+            this.value = value;
+        }
+
+        @Override
+        public double nextDouble() {
+            return value;
+        }
+    }
+}
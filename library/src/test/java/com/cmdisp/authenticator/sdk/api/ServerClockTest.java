@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2017 CM Telecom B.V.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.cmdisp.authenticator.sdk.api;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Date;
+
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okhttp3.internal.http.HttpDate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ServerClockTest {
+    /** Device time the requests are sent at, on a whole second like the Date header */
+    private static final long SENT_AT = 1500000000000L;
+
+    private final ServerClock clock = new ServerClock();
+
+    @Test
+    public void startsWithoutOffset() {
+        assertEquals(0, clock.getOffset());
+        assertTrue(Math.abs(clock.currentTimeMillis() - System.currentTimeMillis()) < 1000);
+    }
+
+    @Test
+    public void estimatesServerAhead() {
+        clock.update(SENT_AT + 60000, SENT_AT, SENT_AT + 200);
+
+        // middle of the reported second minus the middle of the round trip
+        assertEquals(60000 + 500 - 100, clock.getOffset());
+    }
+
+    @Test
+    public void estimatesServerBehind() {
+        clock.update(SENT_AT - 3600000, SENT_AT, SENT_AT + 200);
+
+        assertEquals(-3600000 + 500 - 100, clock.getOffset());
+    }
+
+    @Test
+    public void ignoresNegativeRoundTrip() {
+        clock.update(SENT_AT + 60000, SENT_AT, SENT_AT - 200);
+
+        assertEquals(60000 + 500, clock.getOffset());
+    }
+
+    @Test
+    public void keepsEstimateWithinUncertainty() {
+        clock.update(SENT_AT + 60000, SENT_AT, SENT_AT + 200);
+        long offset = clock.getOffset();
+
+        // the same second reported a bit later is explained by the truncation of the Date header
+        clock.update(SENT_AT + 60000, SENT_AT + 300, SENT_AT + 500);
+
+        assertEquals(offset, clock.getOffset());
+    }
+
+    @Test
+    public void followsChangedServerClock() {
+        clock.update(SENT_AT + 60000, SENT_AT, SENT_AT + 200);
+        clock.update(SENT_AT + 10000 + 60000, SENT_AT + 10000, SENT_AT + 10200);
+        assertEquals(60400, clock.getOffset());
+
+        clock.update(SENT_AT + 20000 + 5000, SENT_AT + 20000, SENT_AT + 20200);
+        assertEquals(5400, clock.getOffset());
+    }
+
+    @Test
+    public void appliesOffsetToCurrentTime() {
+        clock.update(SENT_AT + 60000, SENT_AT, SENT_AT + 200);
+
+        long expected = System.currentTimeMillis() + 60400;
+        assertTrue(Math.abs(clock.currentTimeMillis() - expected) < 1000);
+    }
+
+    @Test
+    public void readsDateHeaderOfResponses() throws IOException {
+        OkHttpClient client = new OkHttpClient.Builder()
+                .addInterceptor(clock)
+                .addInterceptor(chain -> new Response.Builder()
+                        .request(chain.request())
+                        .protocol(Protocol.HTTP_1_1)
+                        .code(200)
+                        .message("OK")
+                        .header("Date", HttpDate.format(new Date(SENT_AT - 30000)))
+                        .sentRequestAtMillis(SENT_AT)
+                        .receivedResponseAtMillis(SENT_AT + 200)
+                        .body(ResponseBody.create(MediaType.parse("text/plain"), ""))
+                        .build())
+                .build();
+
+        client.newCall(new Request.Builder().url("https://api.example.com/").build()).execute().close();
+
+        assertEquals(-30000 + 500 - 100, clock.getOffset());
+    }
+
+    @Test
+    public void ignoresResponsesWithoutDate() throws IOException {
+        OkHttpClient client = new OkHttpClient.Builder()
+                .addInterceptor(clock)
+                .addInterceptor(chain -> new Response.Builder()
+                        .request(chain.request())
+                        .protocol(Protocol.HTTP_1_1)
+                        .code(200)
+                        .message("OK")
+                        .body(ResponseBody.create(MediaType.parse("text/plain"), ""))
+                        .build())
+                .build();
+
+        client.newCall(new Request.Builder().url("https://api.example.com/").build()).execute().close();
+
+        assertEquals(0, clock.getOffset());
+    }
+}
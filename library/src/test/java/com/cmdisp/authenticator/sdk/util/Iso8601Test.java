@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2017 CM Telecom B.V.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.cmdisp.authenticator.sdk.util;
+
+import org.junit.Test;
+
+import java.text.ParseException;
+import java.time.OffsetDateTime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class Iso8601Test {
+
+    @Test
+    public void parsesUtc() throws ParseException {
+        assertEquals(0, Iso8601.parse("1970-01-01T00:00:00Z"));
+        assertEquals(1496320200000L, Iso8601.parse("2017-06-01T12:30:00Z"));
+        assertEquals(1496320200000L, Iso8601.parse("2017-06-01T12:30:00z"));
+    }
+
+    @Test
+    public void parsesOffsets() throws ParseException {
+        long utc = Iso8601.parse("2017-06-01T12:30:00Z");
+        assertEquals(utc, Iso8601.parse("2017-06-01T14:30:00+02:00"));
+        assertEquals(utc, Iso8601.parse("2017-06-01T14:30:00+0200"));
+        assertEquals(utc, Iso8601.parse("2017-06-01T14:30:00+02"));
+        assertEquals(utc, Iso8601.parse("2017-06-01T07:00:00-05:30"));
+        assertEquals(utc, Iso8601.parse("2017-06-01T12:30:00+00:00"));
+    }
+
+    @Test
+    public void parsesFractionalSeconds() throws ParseException {
+        long utc = Iso8601.parse("2017-06-01T12:30:00Z");
+        assertEquals(utc + 500, Iso8601.parse("2017-06-01T12:30:00.5Z"));
+        assertEquals(utc + 120, Iso8601.parse("2017-06-01T12:30:00,12Z"));
+        assertEquals(utc + 123, Iso8601.parse("2017-06-01T12:30:00.123Z"));
+        // digits beyond milliseconds are truncated
+        assertEquals(utc + 123, Iso8601.parse("2017-06-01T12:30:00.123999+00:00"));
+    }
+
+    @Test
+    public void parsesDatesBeforeEpochAndLeapDays() throws ParseException {
+        assertEquals(-1000, Iso8601.parse("1969-12-31T23:59:59Z"));
+        assertEquals(951782400000L, Iso8601.parse("2000-02-29T00:00:00Z"));
+    }
+
+    @Test
+    public void matchesJavaTime() throws ParseException {
+        String[] values = {
+                "1999-12-31T23:59:59.999+01:00",
+                "2016-02-29T12:00:00-08:00",
+                "2017-06-01T12:30:00.123+05:45",
+                "2038-01-19T03:14:08Z",
+                "1900-03-01T00:00:00Z",
+        };
+        for (String value : values) {
+            assertEquals(value, OffsetDateTime.parse(value).toInstant().toEpochMilli(), Iso8601.parse(value));
+        }
+    }
+
+    @Test
+    public void rejectsInvalidTimestamps() {
+        String[] values = {
+                "",
+                "2017-06-01",
+                "2017-06-01 12:30:00Z",
+                "2017-06-01T12:30:00",
+                "2017-06-01T12:30:00.Z",
+                "2017-06-01T12:30:00Zjunk",
+                "2017-06-01T12:30:00+2:00",
+                "2017-06-01T12:30:00+02:0",
+                "2017-06-01T12:30:00+19:00",
+                "2017-06-01T12:30:00+02:60",
+                "2017-13-01T12:30:00Z",
+                "2017-02-29T12:30:00Z",
+                "2017-06-31T12:30:00Z",
+                "2017-06-01T24:00:00Z",
+                "2017-06-01T12:60:00Z",
+                "2017-O6-01T12:30:00Z",
+        };
+        for (String value : values) {
+            try {
+                Iso8601.parse(value);
+                fail("Parsed invalid timestamp: " + value);
+            } catch (ParseException expected) {
+                // expected
+            }
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2017 CM Telecom B.V.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.cmdisp.authenticator.sdk.util;
+
+import org.junit.Test;
+
+import java.nio.charset.Charset;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.Base64;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class JwtEncoderTest {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final String SECRET = "secret";
+
+    @Test
+    public void encodesHeaderAndClaims() throws GeneralSecurityException {
+        String token = JwtEncoder.begin()
+                .claim("iat", 1500000000L)
+                .claim("sub", "device")
+                .sign(SECRET);
+
+        String[] parts = token.split("\\.");
+        assertEquals(3, parts.length);
+        assertEquals("{\"alg\":\"HS256\"}", decode(parts[0]));
+        assertEquals("{\"iat\":1500000000,\"sub\":\"device\"}", decode(parts[1]));
+    }
+
+    @Test
+    public void signsHeaderAndClaims() throws GeneralSecurityException {
+        String token = JwtEncoder.begin()
+                .claim("exp", 1500000060L)
+                .sign(SECRET);
+
+        int end = token.lastIndexOf('.');
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(SECRET.getBytes(UTF_8), "HmacSHA256"));
+        byte[] expected = mac.doFinal(token.substring(0, end).getBytes(UTF_8));
+
+        assertArrayEquals(expected, Base64.getUrlDecoder().decode(token.substring(end + 1)));
+    }
+
+    @Test
+    public void encodesWithoutPadding() throws GeneralSecurityException {
+        // claims of every length modulo 3
+        for (String value : new String[]{"a", "ab", "abc"}) {
+            String token = JwtEncoder.begin().claim("v", value).sign(SECRET);
+
+            assertEquals(token, -1, token.indexOf('='));
+            assertEquals("{\"v\":\"" + value + "\"}", decode(token.split("\\.")[1]));
+        }
+    }
+
+    @Test
+    public void encodesNumbers() throws GeneralSecurityException {
+        String token = JwtEncoder.begin()
+                .claim("zero", 0L)
+                .claim("negative", -42L)
+                .claim("min", Long.MIN_VALUE)
+                .claim("max", Long.MAX_VALUE)
+                .claim("int", (Object) 7)
+                .claim("double", (Object) 1.5)
+                .claim("bool", (Object) true)
+                .sign(SECRET);
+
+        assertEquals("{\"zero\":0,\"negative\":-42,\"min\":-9223372036854775808,\"max\":9223372036854775807,"
+                + "\"int\":7,\"double\":1.5,\"bool\":true}", decode(token.split("\\.")[1]));
+    }
+
+    @Test
+    public void escapesStrings() throws GeneralSecurityException {
+        String token = JwtEncoder.begin()
+                .claim("s", "quote \" backslash \\ newline \n tab \t")
+                .claim("u", "caf\u00e9 \u20ac \uD83D\uDE00")
+                .sign(SECRET);
+
+        assertEquals("{\"s\":\"quote \\\" backslash \\\\ newline \\u000a tab \\u0009\","
+                + "\"u\":\"caf\u00e9 \u20ac \uD83D\uDE00\"}", decode(token.split("\\.")[1]));
+    }
+
+    @Test
+    public void replacesUnpairedSurrogates() throws GeneralSecurityException {
+        String token = JwtEncoder.begin().claim("s", "a\uD83Db\uDE00").sign(SECRET);
+
+        assertEquals("{\"s\":\"a?b?\"}", decode(token.split("\\.")[1]));
+    }
+
+    @Test
+    public void skipsNullValues() throws GeneralSecurityException {
+        String token = JwtEncoder.begin()
+                .claim("a", (String) null)
+                .claim("b", (Object) null)
+                .claim("c", 1L)
+                .sign(SECRET);
+
+        assertEquals("{\"c\":1}", decode(token.split("\\.")[1]));
+    }
+
+    @Test
+    public void encodesHex() throws GeneralSecurityException {
+        String token = JwtEncoder.begin()
+                .claimHex("sig", new byte[]{0x00, 0x0f, (byte) 0xa5, (byte) 0xff})
+                .sign(SECRET);
+
+        assertEquals("{\"sig\":\"000fa5ff\"}", decode(token.split("\\.")[1]));
+    }
+
+    @Test
+    public void rejectsNonFiniteNumbers() {
+        for (Object value : new Object[]{Double.NaN, Double.POSITIVE_INFINITY, Float.NEGATIVE_INFINITY}) {
+            try {
+                JwtEncoder.begin().claim("n", value);
+                fail("Accepted " + value);
+            } catch (IllegalArgumentException expected) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void reusesBuffersForLargeAndFollowingTokens() throws GeneralSecurityException {
+        char[] chars = new char[2000];
+        Arrays.fill(chars, 'x');
+        String large = new String(chars);
+
+        String first = JwtEncoder.begin().claim("large", large).sign(SECRET);
+        String second = JwtEncoder.begin().claim("small", 1L).sign(SECRET);
+
+        assertEquals("{\"large\":\"" + large + "\"}", decode(first.split("\\.")[1]));
+        assertEquals("{\"small\":1}", decode(second.split("\\.")[1]));
+    }
+
+    private static String decode(String part) {
+        return new String(Base64.getUrlDecoder().decode(part), UTF_8);
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2017 CM Telecom B.V.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.cmdisp.authenticator.sdk.util;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TimingWheelTest {
+    private static final long TICK = 50;
+    /** Margin for the scheduling delays of the test machine */
+    private static final long SLACK = 250;
+
+    private TimingWheel wheel;
+
+    @Before
+    public void setUp() {
+        wheel = new TimingWheel(TICK, 8, "test wheel");
+    }
+
+    @Test
+    public void runsNotBeforeDeadline() throws InterruptedException {
+        for (long delay : new long[]{1, 120, 1000}) {
+            assertRunsOnTime(delay);
+        }
+    }
+
+    @Test
+    public void runsNotBeforeDeadlineWhileTicking() throws InterruptedException {
+        // keep the ticker running and schedule in the middle of a tick
+        wheel.schedule(() -> { }, System.currentTimeMillis() + 10000);
+        Thread.sleep(TICK * 4 / 5);
+
+        for (long delay : new long[]{TICK, 2 * TICK}) {
+            assertRunsOnTime(delay);
+        }
+    }
+
+    @Test
+    public void runsAfterWrappingAround() throws InterruptedException {
+        // 8 buckets of 50 ms make a round of 400 ms
+        assertRunsOnTime(900);
+    }
+
+    @Test
+    public void runsPassedDeadlineAtNextTick() throws InterruptedException {
+        long start = System.nanoTime();
+        CountDownLatch latch = new CountDownLatch(1);
+        wheel.schedule(latch::countDown, System.currentTimeMillis() - 1000);
+
+        assertTrue(latch.await(TICK + SLACK, TimeUnit.MILLISECONDS));
+        assertTrue(elapsedMillis(start) <= TICK + SLACK);
+    }
+
+    @Test
+    public void runsInDeadlineOrder() throws InterruptedException {
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch latch = new CountDownLatch(3);
+        long now = System.currentTimeMillis();
+        wheel.schedule(() -> { order.add(3); latch.countDown(); }, now + 300);
+        wheel.schedule(() -> { order.add(1); latch.countDown(); }, now + 60);
+        wheel.schedule(() -> { order.add(2); latch.countDown(); }, now + 180);
+
+        assertTrue(latch.await(300 + TICK + SLACK, TimeUnit.MILLISECONDS));
+        assertEquals(3, order.size());
+        assertEquals(Integer.valueOf(1), order.get(0));
+        assertEquals(Integer.valueOf(2), order.get(1));
+        assertEquals(Integer.valueOf(3), order.get(2));
+    }
+
+    @Test
+    public void cancelledTaskDoesNotRun() throws InterruptedException {
+        CountDownLatch cancelled = new CountDownLatch(1);
+        CountDownLatch other = new CountDownLatch(1);
+        long now = System.currentTimeMillis();
+        TimingWheel.Timeout timeout = wheel.schedule(cancelled::countDown, now + 100);
+        wheel.schedule(other::countDown, now + 200);
+
+        assertTrue(timeout.cancel());
+        assertFalse(timeout.cancel());
+
+        assertTrue(other.await(200 + TICK + SLACK, TimeUnit.MILLISECONDS));
+        assertEquals(1, cancelled.getCount());
+    }
+
+    @Test
+    public void cancelAfterRunReturnsFalse() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        TimingWheel.Timeout timeout = wheel.schedule(latch::countDown, System.currentTimeMillis() + 10);
+
+        assertTrue(latch.await(TICK + SLACK, TimeUnit.MILLISECONDS));
+        assertFalse(timeout.cancel());
+    }
+
+    @Test
+    public void restartsAfterIdle() throws InterruptedException {
+        assertRunsOnTime(60);
+        Thread.sleep(3 * TICK);
+        assertRunsOnTime(160);
+    }
+
+    private void assertRunsOnTime(long delay) throws InterruptedException {
+        long start = System.nanoTime();
+        long[] ranAfter = new long[1];
+        CountDownLatch latch = new CountDownLatch(1);
+        wheel.schedule(() -> {
+            ranAfter[0] = elapsedMillis(start);
+            latch.countDown();
+        }, System.currentTimeMillis() + delay);
+
+        assertTrue("not run within a tick after " + delay + " ms",
+                latch.await(delay + TICK + SLACK, TimeUnit.MILLISECONDS));
+        assertTrue("ran after " + ranAfter[0] + " ms instead of " + delay + " ms", ranAfter[0] >= delay);
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+}